@@ -0,0 +1,56 @@
+package socialmedia.bench;
+
+import socialmedia.model.CsrGraph;
+import socialmedia.model.DirectedGraph;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cuanto cuesta armar el grafo: relacion por relacion, en bloque y la foto CSR
+ * Pa 10^6 users o mas conviene correr solo "bulk": addRelation revisa la
+ * fila entera en cada llamada y con POWER_LAW se vuelve cuadratico
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BuildBenchmark {
+
+    @Param({"ERDOS_RENYI", "POWER_LAW", "CHAIN"})
+    public GraphShape shape;
+
+    @Param({"1000", "100000"})
+    public int n;
+
+    private GraphShape.Edges edges;
+    private DirectedGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        edges = shape.generate(n, GraphShape.SEED);
+        graph = edges.toGraph();
+    }
+
+    @Benchmark
+    public DirectedGraph addRelation() {
+        DirectedGraph g = edges.users();
+        for (int i = 0; i < edges.count; i++) g.addRelation(edges.from[i], edges.to[i]);
+        return g;
+    }
+
+    @Benchmark
+    public DirectedGraph bulk() {
+        DirectedGraph g = edges.users();
+        g.addRelations(edges.from, edges.to, edges.count);
+        return g;
+    }
+
+    @Benchmark
+    public CsrGraph freeze() {
+        return graph.freeze();
+    }
+}
@@ -0,0 +1,148 @@
+package socialmedia.bench;
+
+import socialmedia.model.DirectedGraph;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generadores de grafos sinteticos pa los benchmarks
+ * Todos son deterministas para una misma semilla, asi las corridas se
+ * pueden comparar entre versiones
+ *
+ * @version 1.0
+ */
+public enum GraphShape {
+
+    /** Erdos-Renyi: DEGREE relaciones al azar por user, SCCs chicas y una gigante */
+    ERDOS_RENYI {
+        @Override
+        Edges generate(int n, long seed) {
+            Random r = new Random(seed);
+            Edges e = new Edges(n, n * DEGREE);
+            for (int i = 0; i < n * DEGREE; i++) e.add(r.nextInt(n), r.nextInt(n));
+            return e;
+        }
+    },
+
+    /**
+     * Ley de potencia por enganche preferencial (Barabasi-Albert): cada user nuevo
+     * sigue a DEGREE users elegidos en proporcion a su grado, y algunos le
+     * devuelven el follow pa que haya ciclos. Deja unos pocos users con muchisimos seguidores
+     */
+    POWER_LAW {
+        @Override
+        Edges generate(int n, long seed) {
+            Random r = new Random(seed);
+            Edges e = new Edges(n, n * DEGREE + n * DEGREE / 3);
+            // cada arista deja sus dos puntas aca, elegir una al azar es elegir por grado
+            int[] ends = new int[2 * n * DEGREE + 2];
+            int endCount = 0;
+            ends[endCount++] = 0;
+            for (int v = 1; v < n; v++) {
+                for (int k = 0; k < DEGREE; k++) {
+                    int t = ends[r.nextInt(endCount)];
+                    e.add(v, t);
+                    if (r.nextInt(3) == 0) e.add(t, v);
+                    if (endCount + 2 <= ends.length) {
+                        ends[endCount++] = v;
+                        ends[endCount++] = t;
+                    }
+                }
+            }
+            return e;
+        }
+    },
+
+    /**
+     * Una cadena larga 0 -> 1 -> ... -> n-1 cerrada con n-1 -> 0
+     * Es una sola SCC con un camino de largo n, el peor caso pa la profundidad del DFS
+     */
+    CHAIN {
+        @Override
+        Edges generate(int n, long seed) {
+            Edges e = new Edges(n, n);
+            for (int v = 0; v + 1 < n; v++) e.add(v, v + 1);
+            if (n > 1) e.add(n - 1, 0);
+            return e;
+        }
+    };
+
+    /** Relaciones promedio por user en los grafos al azar */
+    static final int DEGREE = 8;
+
+    /** Semilla fija de todos los benchmarks */
+    static final long SEED = 42;
+
+    /**
+     * Genera las relaciones de un grafo de n users
+     *
+     * @param n cuantos users
+     * @param seed semilla del azar
+     * @return los pares de relaciones, pueden venir repetidos
+     */
+    abstract Edges generate(int n, long seed);
+
+    /**
+     * Genera el grafo completo ya armado
+     *
+     * @param n cuantos users
+     * @param seed semilla del azar
+     * @return el grafo
+     */
+    DirectedGraph build(int n, long seed) {
+        return generate(n, seed).toGraph();
+    }
+
+    /**
+     * Pares de relaciones crudos, sin pasar todavia por el grafo
+     */
+    static final class Edges {
+
+        final int n;
+        int[] from;
+        int[] to;
+        int count;
+
+        Edges(int n, int expected) {
+            this.n = n;
+            from = new int[Math.max(expected, 16)];
+            to = new int[from.length];
+        }
+
+        void add(int u, int v) {
+            if (count == from.length) {
+                from = Arrays.copyOf(from, count * 2);
+                to = Arrays.copyOf(to, count * 2);
+            }
+            from[count] = u;
+            to[count] = v;
+            count++;
+        }
+
+        /**
+         * Nombre del user v en los grafos generados
+         */
+        static String name(int v) {
+            return "u" + v;
+        }
+
+        /**
+         * Grafo vacio con los n users ya agregados
+         */
+        DirectedGraph users() {
+            DirectedGraph g = new DirectedGraph();
+            for (int v = 0; v < n; v++) g.addUser(name(v));
+            return g;
+        }
+
+        /**
+         * Arma el grafo pasando todas las relaciones por el builder
+         */
+        DirectedGraph toGraph() {
+            DirectedGraph.Builder b = new DirectedGraph.Builder();
+            for (int v = 0; v < n; v++) b.addUser(name(v));
+            for (int i = 0; i < count; i++) b.addRelation(from[i], to[i]);
+            return b.build();
+        }
+    }
+}
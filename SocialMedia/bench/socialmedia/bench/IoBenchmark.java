@@ -0,0 +1,81 @@
+package socialmedia.bench;
+
+import socialmedia.io.BinaryGraphFormat;
+import socialmedia.io.FileSocialMedia;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.DirectedGraph;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cargar y guardar en los dos formatos, texto y binario
+ * Los archivos se generan una vez por corrida en el directorio temporal
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IoBenchmark {
+
+    @Param({"ERDOS_RENYI", "POWER_LAW", "CHAIN"})
+    public GraphShape shape;
+
+    @Param({"1000", "100000"})
+    public int n;
+
+    private DirectedGraph graph;
+    private File text;
+    private File binary;
+    private File textOut;
+    private File binaryOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        graph = shape.build(n, GraphShape.SEED);
+        text = File.createTempFile("bench", ".txt");
+        binary = File.createTempFile("bench", BinaryGraphFormat.EXTENSION);
+        textOut = File.createTempFile("bench-out", ".txt");
+        binaryOut = File.createTempFile("bench-out", BinaryGraphFormat.EXTENSION);
+        FileSocialMedia.saveToFile(graph, text);
+        FileSocialMedia.saveToFile(graph, binary);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        text.delete();
+        binary.delete();
+        textOut.delete();
+        binaryOut.delete();
+    }
+
+    @Benchmark
+    public DirectedGraph loadText() throws IOException {
+        return FileSocialMedia.loadFromFile(text);
+    }
+
+    @Benchmark
+    public DirectedGraph loadBinary() throws IOException {
+        return FileSocialMedia.loadFromFile(binary);
+    }
+
+    @Benchmark
+    public CsrGraph loadBinaryCsr() throws IOException {
+        return BinaryGraphFormat.loadCsr(binary);
+    }
+
+    @Benchmark
+    public void saveText() throws IOException {
+        FileSocialMedia.saveToFile(graph, textOut);
+    }
+
+    @Benchmark
+    public void saveBinary() throws IOException {
+        FileSocialMedia.saveToFile(graph, binaryOut);
+    }
+}
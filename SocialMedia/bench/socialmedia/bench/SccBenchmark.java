@@ -0,0 +1,65 @@
+package socialmedia.bench;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.algorithms.SccAlgorithm;
+import socialmedia.algorithms.SccEngine;
+import socialmedia.model.CompressedGraph;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.DirectedGraph;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Los algoritmos de SCC sobre la misma foto CSR
+ * "fromGraph" corre el mismo algoritmo directo sobre el DirectedGraph, que se
+ * lee con su cursor sin sacar la foto CSR (Kosaraju y el paralelo solo arman
+ * el reverso)
+ * "compressed" lo corre sobre la foto comprimida, sin pasarla a CSR
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SccBenchmark {
+
+    @Param({"ERDOS_RENYI", "POWER_LAW", "CHAIN"})
+    public GraphShape shape;
+
+    @Param({"1000", "100000"})
+    public int n;
+
+    @Param({"KOSARAJU", "TARJAN", "PATH_BASED", "PARALLEL"})
+    public String engine;
+
+    private DirectedGraph graph;
+    private CsrGraph csr;
+    private CompressedGraph compressed;
+    private SccAlgorithm algorithm;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = shape.build(n, GraphShape.SEED);
+        csr = CsrGraph.from(graph, true);
+        compressed = CompressedGraph.from(graph);
+        algorithm = SccEngine.fromName(engine).create();
+    }
+
+    @Benchmark
+    public SCCResult findComponents() {
+        return algorithm.findComponents(csr);
+    }
+
+    @Benchmark
+    public SCCResult compressed() {
+        return algorithm.findComponents(compressed);
+    }
+
+    @Benchmark
+    public SCCResult fromGraph() {
+        return algorithm.findComponents(graph);
+    }
+}
@@ -0,0 +1,37 @@
+package socialmedia.bench;
+
+import socialmedia.model.DirectedGraph;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * El texto que muestra la ventana (DirectedGraph.toString)
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ToStringBenchmark {
+
+    @Param({"ERDOS_RENYI", "POWER_LAW", "CHAIN"})
+    public GraphShape shape;
+
+    @Param({"1000", "10000"})
+    public int n;
+
+    private DirectedGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = shape.build(n, GraphShape.SEED);
+    }
+
+    @Benchmark
+    public String render() {
+        return graph.toString();
+    }
+}
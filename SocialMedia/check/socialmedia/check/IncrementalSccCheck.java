@@ -0,0 +1,73 @@
+package socialmedia.check;
+
+import socialmedia.algorithms.IncrementalScc;
+import socialmedia.algorithms.Kosaraju;
+import socialmedia.model.DirectedGraph;
+import java.util.Random;
+
+/**
+ * Chequeo aleatorio de IncrementalScc contra Kosaraju
+ * Edita grafos al azar con el seguimiento enganchado (relaciones sueltas,
+ * lotes chicos y grandes de addRelations, borrados de relaciones y users)
+ * y despues de cada paso compara los componentes con una pasada completa
+ *
+ * <pre>
+ * ant check
+ * java -cp build/classes:build/check socialmedia.check.IncrementalSccCheck [rondas] [semilla]
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class IncrementalSccCheck {
+
+    /**
+     * Corre el chequeo; termina con codigo 1 si algun resultado no coincide
+     *
+     * @param args cuantas rondas y la semilla (opcionales)
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random r = new Random(seed);
+        int steps = 0;
+        for (int round = 0; round < rounds; round++) {
+            DirectedGraph g = new DirectedGraph();
+            int n = 20 + r.nextInt(round % 10 == 0 ? 3000 : 300);
+            for (int i = 0; i < n; i++) g.addUser("u" + i);
+            int m = r.nextInt(2 * n);
+            for (int i = 0; i < m; i++) g.addRelation(r.nextInt(n), r.nextInt(n));
+            IncrementalScc live = new IncrementalScc(g);
+
+            for (int step = 0; step < 20; step++) {
+                int op = r.nextInt(10);
+                int size = g.getVertexCount();
+                if (op < 4) {
+                    // lote: a veces chico (por relacion), a veces grande (se recalcula)
+                    int count = 64 + r.nextInt(op == 0 ? 4 * size + IncrementalScc.REBUILD_MIN : 200);
+                    int[] from = new int[count];
+                    int[] to = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        from[i] = r.nextInt(size);
+                        to[i] = r.nextInt(size);
+                    }
+                    g.addRelations(from, to, count);
+                } else if (op < 7) {
+                    for (int i = 0; i < 10; i++) g.addRelation(r.nextInt(size), r.nextInt(size));
+                } else if (op < 9) {
+                    int v = r.nextInt(size);
+                    int[] nb = g.getNeighbors(v);
+                    if (nb.length > 0) g.removeRelation(g.getUserByIndex(v), g.getUserByIndex(nb[r.nextInt(nb.length)]));
+                } else if (size > 2) {
+                    g.removeUser(g.getUserByIndex(r.nextInt(size)));
+                }
+                steps++;
+                if (!live.toResult().samePartition(Kosaraju.findSCC(g))) {
+                    System.err.println("Mismatch in round " + round + ", step " + step + " (seed " + seed + ")");
+                    System.exit(1);
+                }
+            }
+            live.detach();
+        }
+        System.out.println("IncrementalScc OK: " + rounds + " rounds, " + steps + " checked steps");
+    }
+}
@@ -0,0 +1,167 @@
+package socialmedia.check;
+
+import socialmedia.io.FileSocialMedia;
+import socialmedia.io.GraphJournal;
+import socialmedia.model.DirectedGraph;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Chequeo aleatorio de GraphJournal
+ * Edita grafos con la bitacora enganchada, guarda (sync) y hace checkpoints
+ * en momentos al azar, y despues revisa que:
+ * - FileSocialMedia.loadFromFile vea justo lo ultimo guardado
+ * - GraphJournal.open recupere todo, incluso lo que no se guardo
+ * - despues de discard los dos vean lo ultimo guardado
+ * - si el archivo se reescribe sin la bitacora (saveToFile), la bitacora
+ *   vieja que queda al lado no se aplica
+ *
+ * Los nombres mezclan ASCII con acentos, ñ, otros alfabetos y emojis, en
+ * archivos de texto y binarios. ant check lo corre con un charset de
+ * plataforma que no es UTF-8, asi se nota si algo escribe o lee los nombres
+ * con el charset por defecto
+ *
+ * <pre>
+ * ant check
+ * java -Dfile.encoding=ISO-8859-1 -cp build/classes:build/check socialmedia.check.JournalCheck [rondas] [semilla]
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class JournalCheck {
+
+    private static final String[] PREFIXES = { "u", "@josé", "@ñandú", "Zoë ", "Łódź-", "日本", "😀" };
+
+    /**
+     * Corre el chequeo; termina con codigo 1 si algun resultado no coincide
+     *
+     * @param args cuantas rondas y la semilla (opcionales)
+     * @throws IOException si hay error con los archivos temporales
+     */
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random r = new Random(seed);
+        File dir = Files.createTempDirectory("journalcheck").toFile();
+        int syncs = 0, checkpoints = 0;
+        try {
+            for (int round = 0; round < rounds; round++) {
+                File base = new File(dir, round % 2 == 0 ? "g" + round + ".txt" : "g" + round + ".smgb");
+                String where = "round " + round + ", " + base.getName() + " (seed " + seed + ")";
+                int[] next = { 0 };
+                DirectedGraph g = new DirectedGraph();
+                for (int i = 0, n = 5 + r.nextInt(50); i < n; i++) g.addUser(name(r, next));
+                for (int i = 0, m = r.nextInt(100); i < m; i++) {
+                    g.addRelation(r.nextInt(g.getVertexCount()), r.nextInt(g.getVertexCount()));
+                }
+                GraphJournal j = GraphJournal.create(g, base);
+                Set<String> saved = snapshot(g);
+                for (int step = 0, steps = 50 + r.nextInt(300); step < steps; step++) {
+                    edit(g, r, next);
+                    int op = r.nextInt(40);
+                    if (op < 3) {
+                        j.sync();
+                        saved = snapshot(g);
+                        syncs++;
+                    } else if (op == 3) {
+                        // lo mismo que hace sync solo cada CHECKPOINT_RECORDS registros
+                        j.checkpoint();
+                        saved = snapshot(g);
+                        checkpoints++;
+                    }
+                }
+                Set<String> live = snapshot(g);
+                j.close();
+
+                expect(saved, snapshot(FileSocialMedia.loadFromFile(base)), "loadFromFile after close, " + where);
+                GraphJournal reopened = GraphJournal.open(base);
+                expect(live, snapshot(reopened.getGraph()), "open after close, " + where);
+                reopened.discard();
+                reopened.close();
+                expect(saved, snapshot(FileSocialMedia.loadFromFile(base)), "loadFromFile after discard, " + where);
+                reopened = GraphJournal.open(base);
+                expect(saved, snapshot(reopened.getGraph()), "open after discard, " + where);
+                // un cambio guardado, asi la bitacora que queda no esta vacia
+                reopened.getGraph().addUser(name(r, next));
+                reopened.sync();
+                reopened.close();
+
+                DirectedGraph other = new DirectedGraph();
+                for (int i = 0, n = 1 + r.nextInt(20); i < n; i++) other.addUser(name(r, next));
+                for (int i = 0; i < 20; i++) other.addRelation(r.nextInt(other.getVertexCount()), r.nextInt(other.getVertexCount()));
+                FileSocialMedia.saveToFile(other, base);
+                expect(snapshot(other), snapshot(FileSocialMedia.loadFromFile(base)), "loadFromFile after saveToFile, " + where);
+                reopened = GraphJournal.open(base);
+                expect(snapshot(other), snapshot(reopened.getGraph()), "open after saveToFile, " + where);
+                reopened.close();
+            }
+        } finally {
+            File[] left = dir.listFiles();
+            if (left != null) for (File f : left) f.delete();
+            dir.delete();
+        }
+        System.out.println("GraphJournal OK: " + rounds + " graphs, " + syncs + " saves, " + checkpoints + " checkpoints");
+    }
+
+    /**
+     * Un nombre nuevo, a veces con caracteres fuera de ASCII
+     */
+    private static String name(Random r, int[] next) {
+        return PREFIXES[r.nextInt(PREFIXES.length)] + next[0]++;
+    }
+
+    /**
+     * Un cambio al azar: users, relaciones sueltas, un lote o un borrado
+     */
+    private static void edit(DirectedGraph g, Random r, int[] next) {
+        int n = g.getVertexCount();
+        int op = r.nextInt(10);
+        if (op < 2 || n < 3) {
+            g.addUser(name(r, next));
+        } else if (op < 5) {
+            g.addRelation(r.nextInt(n), r.nextInt(n));
+        } else if (op < 6) {
+            int count = 1 + r.nextInt(20);
+            int[] from = new int[count];
+            int[] to = new int[count];
+            for (int i = 0; i < count; i++) {
+                from[i] = r.nextInt(n);
+                to[i] = r.nextInt(n);
+            }
+            g.addRelations(from, to, count);
+        } else if (op < 9) {
+            int v = r.nextInt(n);
+            int[] nb = g.getNeighbors(v);
+            if (nb.length > 0) g.removeRelation(g.getUserByIndex(v), g.getUserByIndex(nb[r.nextInt(nb.length)]));
+        } else {
+            g.removeUser(g.getUserByIndex(r.nextInt(n)));
+        }
+    }
+
+    /**
+     * Los users y las relaciones por nombre, sin depender de los indices
+     */
+    private static Set<String> snapshot(DirectedGraph g) {
+        Set<String> s = new HashSet<>();
+        for (int v = 0; v < g.getVertexCount(); v++) {
+            String from = g.getUserByIndex(v);
+            s.add(from);
+            for (int w : g.getNeighbors(v)) s.add(from + " -> " + g.getUserByIndex(w));
+        }
+        return s;
+    }
+
+    private static void expect(Set<String> expected, Set<String> got, String where) {
+        if (expected.equals(got)) return;
+        Set<String> missing = new HashSet<>(expected);
+        missing.removeAll(got);
+        Set<String> extra = new HashSet<>(got);
+        extra.removeAll(expected);
+        System.err.println("Graph differs in " + where + ": missing " + missing + ", extra " + extra);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,130 @@
+package socialmedia.check;
+
+import socialmedia.algorithms.Kosaraju;
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.algorithms.ParallelScc;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.DirectedGraph;
+import socialmedia.model.NeighborCursor;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Chequeo aleatorio de ParallelScc contra Kosaraju
+ * Arma grafos al azar de varias formas, de unos pocos users hasta varias
+ * veces el tamaño desde el que FW-BW parte en vez de usar el Tarjan local
+ * (4096), y corre el paralelo con varios hilos sobre cada uno
+ *
+ * Las formas cubren el recorte (muchos users sin entradas o sin salidas,
+ * cadenas colgando), un componente gigante y varios componentes grandes
+ * unidos en una DAG, asi los tres pedazos de FW-BW pasan del umbral.
+ * Revisa que la particion sea la de Kosaraju, que el orden sea topologico
+ * y que la numeracion no cambie con la cantidad de hilos
+ *
+ * <pre>
+ * ant check
+ * java -cp build/classes:build/check socialmedia.check.ParallelSccCheck [rondas] [semilla]
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class ParallelSccCheck {
+
+    private static final int[] PARALLELISM = { 1, 2, 4, 8 };
+
+    /**
+     * Corre el chequeo; termina con codigo 1 si algun resultado no coincide
+     *
+     * @param args cuantas rondas y la semilla (opcionales)
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random r = new Random(seed);
+        int large = 0;
+        for (int round = 0; round < rounds; round++) {
+            int shape = round % 4;
+            int n = round % 3 == 0 ? 20 + r.nextInt(500) : 4097 + r.nextInt(30000);
+            if (n > 4096) large++;
+            DirectedGraph g = build(shape, n, r);
+            CsrGraph csr = g.freeze();
+            SCCResult expected = Kosaraju.findSCC(csr);
+            int[] first = null;
+            for (int p : PARALLELISM) {
+                SCCResult got = new ParallelScc(p).findComponents(csr);
+                String where = "round " + round + ", shape " + shape + ", n " + n + ", " + p + " threads (seed " + seed + ")";
+                if (!got.samePartition(expected)) fail("Partition differs from Kosaraju in " + where);
+                if (!topological(csr, got)) fail("Components not in topological order in " + where);
+                if (first == null) first = got.componentOf;
+                else if (!Arrays.equals(first, got.componentOf)) fail("Numbering depends on the thread count in " + where);
+            }
+        }
+        System.out.println("ParallelScc OK: " + rounds + " graphs (" + large + " above the local Tarjan threshold), "
+                + PARALLELISM.length + " thread counts each");
+    }
+
+    /**
+     * Arma un grafo de la forma pedida
+     * 0: al azar y ralo, con muchos users que el recorte saca
+     * 1: al azar y mas denso, casi todo un componente gigante
+     * 2: varios ciclos grandes con atajos, unidos en una DAG
+     * 3: un nucleo al azar con cadenas entrando y saliendo
+     */
+    private static DirectedGraph build(int shape, int n, Random r) {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < n; i++) g.addUser("u" + i);
+        switch (shape) {
+            case 0:
+                for (int i = 0, m = n + r.nextInt(n / 2 + 1); i < m; i++) g.addRelation(r.nextInt(n), r.nextInt(n));
+                break;
+            case 1:
+                for (int i = 0, m = 3 * n; i < m; i++) g.addRelation(r.nextInt(n), r.nextInt(n));
+                break;
+            case 2: {
+                int blocks = 1 + r.nextInt(6);
+                int size = n / blocks;
+                for (int b = 0; b < blocks; b++) {
+                    int from = b * size;
+                    int to = b == blocks - 1 ? n : from + size;
+                    for (int v = from; v < to - 1; v++) g.addRelation(v, v + 1);
+                    if (to - from > 1 && r.nextInt(4) != 0) g.addRelation(to - 1, from); // a veces queda cadena
+                    for (int i = 0; i < (to - from) / 4; i++) g.addRelation(from + r.nextInt(to - from), from + r.nextInt(to - from));
+                    // flechas solo hacia bloques de mas adelante
+                    if (b < blocks - 1) {
+                        for (int i = 0; i < 5; i++) g.addRelation(from + r.nextInt(to - from), to + r.nextInt(n - to));
+                    }
+                }
+                break;
+            }
+            default: {
+                int core = n / 2;
+                for (int i = 0; i < 2 * core; i++) g.addRelation(r.nextInt(core), r.nextInt(core));
+                for (int v = core; v < n; v++) {
+                    int w = v + 1 < n && r.nextBoolean() ? v + 1 : r.nextInt(core);
+                    if (r.nextBoolean()) g.addRelation(v, w);
+                    else g.addRelation(w, v);
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Dice si ninguna relacion va de un componente a uno anterior
+     */
+    private static boolean topological(CsrGraph g, SCCResult r) {
+        NeighborCursor cur = g.cursor();
+        for (int v = 0; v < g.getVertexCount(); v++) {
+            cur.moveTo(v);
+            while (cur.hasNext()) {
+                if (r.componentOf[v] > r.componentOf[cur.nextInt()]) return false;
+            }
+        }
+        return true;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
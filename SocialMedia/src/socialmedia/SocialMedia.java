@@ -1,14 +1,20 @@
 package socialmedia;
 
 import javax.swing.SwingUtilities;
+import socialmedia.cli.BatchScc;
 import socialmedia.ui.MainWindow;
 
 /**
  * Punto de entrada: abre la ventana principal.
+ * Con argumentos corre el modo batch (BatchScc) sin abrir ninguna ventana.
  */
 public class SocialMedia {
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            BatchScc.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
                 MainWindow w = new MainWindow();
@@ -0,0 +1,222 @@
+package socialmedia.algorithms;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.model.GraphView;
+import socialmedia.model.NeighborCursor;
+
+/**
+ * Grafo de componentes (condensacion): un nodo por cada SCC y una flecha
+ * de c a d si algun user de c sigue a alguno de d. Cada flecha lleva el peso
+ * de cuantas relaciones originales junta
+ *
+ * Las flechas estan en CSR igual que CsrGraph: las de c van de
+ * targets[offsets[c]] a targets[offsets[c + 1] - 1], con su peso en weights
+ *
+ * En la misma pasada sobre las relaciones se cuentan, por componente, las
+ * relaciones internas y los grados de entrada y salida en la condensacion.
+ * Despues se saca un orden topologico (Kahn) recorriendo solo las flechas
+ *
+ * @version 1.0
+ */
+public final class Condensation {
+
+    private final SCCResult components;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] internal;
+    private final int[] inDegree;
+    private final int[] order;
+    private final int[] rank;
+
+    private Condensation(SCCResult components, int[] offsets, int[] targets, int[] weights,
+                         int[] internal, int[] inDegree, int[] order) {
+        this.components = components;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.internal = internal;
+        this.inDegree = inDegree;
+        this.order = order;
+        this.rank = new int[order.length];
+        for (int i = 0; i < order.length; i++) rank[order[i]] = i;
+    }
+
+    /**
+     * Arma la condensacion en una pasada sobre las relaciones
+     * Recorre componente por componente y junta las flechas repetidas
+     * marcando el ultimo componente que vio cada destino, sin ordenar ni hashear
+     * Sirve pa cualquier GraphView (DirectedGraph, CsrGraph, los de solo lectura)
+     *
+     * @param g el grafo
+     * @param r sus componentes
+     * @return la condensacion
+     */
+    public static Condensation of(GraphView g, SCCResult r) {
+        int count = r.count;
+        int[] comp = r.componentOf;
+        NeighborCursor cur = g.cursor();
+
+        int[] dagOff = new int[count + 1];
+        int[] dagTargets = new int[16];
+        int[] dagWeights = new int[16];
+        int[] internal = new int[count];
+        int[] inDeg = new int[count];
+        int edges = 0;
+
+        int[] seenBy = new int[count]; // ultimo componente + 1 que llego a este destino
+        int[] slot = new int[count];   // donde quedo su flecha
+
+        for (int c = 0; c < count; c++) {
+            dagOff[c] = edges;
+            for (int k = r.offsets[c]; k < r.offsets[c + 1]; k++) {
+                cur.moveTo(r.members[k]);
+                while (cur.hasNext()) {
+                    int d = comp[cur.nextInt()];
+                    if (d == c) {
+                        internal[c]++;
+                        continue;
+                    }
+                    if (seenBy[d] == c + 1) {
+                        dagWeights[slot[d]]++;
+                        continue;
+                    }
+                    if (edges == dagTargets.length) {
+                        dagTargets = grow(dagTargets, edges * 2);
+                        dagWeights = grow(dagWeights, edges * 2);
+                    }
+                    seenBy[d] = c + 1;
+                    slot[d] = edges;
+                    dagTargets[edges] = d;
+                    dagWeights[edges] = 1;
+                    inDeg[d]++;
+                    edges++;
+                }
+            }
+        }
+        dagOff[count] = edges;
+        int[] order = topologicalOrder(dagOff, dagTargets, inDeg, seenBy);
+        return new Condensation(r, dagOff, grow(dagTargets, edges), grow(dagWeights, edges), internal, inDeg, order);
+    }
+
+    /**
+     * Kahn sobre las flechas: primero los componentes sin entrada
+     * La condensacion no tiene ciclos, asi que salen todos
+     *
+     * @param pending array de trabajo de count posiciones (se pisa)
+     */
+    private static int[] topologicalOrder(int[] off, int[] targets, int[] inDeg, int[] pending) {
+        int count = inDeg.length;
+        int[] order = new int[count];
+        int tail = 0;
+        for (int c = 0; c < count; c++) {
+            pending[c] = inDeg[c];
+            if (pending[c] == 0) order[tail++] = c;
+        }
+        for (int head = 0; head < tail; head++) {
+            int c = order[head];
+            for (int i = off[c]; i < off[c + 1]; i++) {
+                if (--pending[targets[i]] == 0) order[tail++] = targets[i];
+            }
+        }
+        if (tail != count) throw new IllegalStateException("Components do not form a DAG.");
+        return order;
+    }
+
+    /**
+     * Los componentes con los que se armo
+     *
+     * @return el resultado del SCC
+     */
+    public SCCResult getComponents() { return components; }
+
+    /**
+     * Cuantos componentes (nodos de la condensacion) hay
+     *
+     * @return el numero de componentes
+     */
+    public int getComponentCount() { return components.count; }
+
+    /**
+     * Cuantas flechas distintas hay entre componentes
+     *
+     * @return el numero de flechas
+     */
+    public int getEdgeCount() { return targets.length; }
+
+    /**
+     * Cuantos users tiene un componente
+     *
+     * @param c el componente
+     * @return su tamaño
+     */
+    public int size(int c) { return components.size(c); }
+
+    /**
+     * Cuantos componentes distintos alcanza c directamente
+     *
+     * @param c el componente
+     * @return cuantas flechas salen de c
+     */
+    public int getSuccessorCount(int c) { return offsets[c + 1] - offsets[c]; }
+
+    /**
+     * Cuantos componentes distintos llegan a c directamente
+     *
+     * @param c el componente
+     * @return cuantas flechas entran a c
+     */
+    public int getPredecessorCount(int c) { return inDegree[c]; }
+
+    /**
+     * Cuantas relaciones quedan adentro de un componente
+     *
+     * @param c el componente
+     * @return las relaciones entre users del mismo componente
+     */
+    public int getInternalEdgeCount(int c) { return internal[c]; }
+
+    /**
+     * Los componentes en orden topologico: toda flecha va de uno
+     * que esta antes a uno que esta despues
+     *
+     * @return el array interno con el orden
+     */
+    public int[] getTopologicalOrder() { return order; }
+
+    /**
+     * En que posicion del orden topologico esta un componente
+     * Si c esta despues que d en el orden, no hay camino de c a d
+     *
+     * @param c el componente
+     * @return su posicion en getTopologicalOrder
+     */
+    public int getTopologicalRank(int c) { return rank[c]; }
+
+    /**
+     * Inicio de las flechas de cada componente (count + 1 posiciones)
+     *
+     * @return el array interno de offsets
+     */
+    public int[] getOffsets() { return offsets; }
+
+    /**
+     * Destino de cada flecha
+     *
+     * @return el array interno de destinos
+     */
+    public int[] getTargets() { return targets; }
+
+    /**
+     * Cuantas relaciones originales junta cada flecha
+     *
+     * @return el array interno de pesos
+     */
+    public int[] getWeights() { return weights; }
+
+    private static int[] grow(int[] a, int len) {
+        int[] out = new int[len];
+        System.arraycopy(a, 0, out, 0, Math.min(a.length, len));
+        return out;
+    }
+}
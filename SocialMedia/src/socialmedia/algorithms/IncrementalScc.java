@@ -0,0 +1,552 @@
+package socialmedia.algorithms;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.model.DirectedGraph;
+import socialmedia.model.GraphListener;
+import socialmedia.model.Progress;
+
+/**
+ * Mantiene los componentes fuertemente conectados al dia mientras se edita el grafo
+ * Se registra como listener del DirectedGraph, asi no hay que recalcular todo
+ * despues de cada cambio
+ *
+ * Guarda la condensacion (un nodo por componente) con un orden topologico:
+ * - Al agregar una relacion u -> v que va "pa atras" en el orden, busca desde
+ *   el componente de v lo que alcanza sin pasarse del de u. Si llega a u, todo
+ *   lo que esta en el camino se junta en un solo componente. Despues se
+ *   reacomoda solo esa ventana del orden (algoritmo de Marchetti-Spaccamela)
+ * - Al quitar una relacion o un user, solo se recalcula el componente afectado
+ *   con un Tarjan local y se parte si hace falta
+ *
+ * Los ids de componente son internos: no cambian mientras ese componente no
+ * se junte ni se parta. Pa numeracion densa y ordenada esta toResult()
+ *
+ * La busqueda al agregar una relacion supone que ya le avisaron de todas las
+ * relaciones que hay en el grafo. Por eso addRelations avisa cada relacion
+ * apenas la escribe. Si el lote es grande (REBUILD_MIN o mas, y al menos un
+ * octavo de las relaciones) conviene mas recalcular todo al final del lote
+ * con el algoritmo de la pasada inicial, y eso hace
+ *
+ * @version 1.0
+ */
+public class IncrementalScc implements GraphListener {
+
+    /** Desde cuantas relaciones un lote se resuelve recalculando todo */
+    public static final int REBUILD_MIN = 1024;
+
+    private final DirectedGraph graph;
+    private final SccAlgorithm algorithm;
+    private boolean deferred; // dentro de un lote grande, se recalcula al final
+
+    // por nodo
+    private int[] comp;
+
+    // por componente
+    private int[][] mem;
+    private int[] memCount;
+    private int[] ord;
+    private int[] stamp;
+    private boolean[] reach;
+    private int compCap;
+    private int[] freeIds;
+    private int freeCount;
+    private int nextId;
+    private int liveComps;
+
+    // orden topologico: posicion -> componente, -1 si es un hueco
+    private int[] order;
+    private int slots;
+
+    private int epoch;
+
+    // auxiliares que se reusan entre llamadas
+    private int[] fC, fK, fI;
+    private int[] visitedList, before, after;
+    private int[] tIndex = new int[0], tLow = new int[0];
+    private boolean[] tOn = new boolean[0];
+
+    /**
+     * Calcula los componentes con Tarjan y se engancha al grafo
+     *
+     * @param graph el grafo a seguir
+     */
+    public IncrementalScc(DirectedGraph graph) {
+        this(graph, new Tarjan());
+    }
+
+    /**
+     * Calcula los componentes con el algoritmo dado y se engancha al grafo
+     *
+     * @param graph el grafo a seguir
+     * @param initial el algoritmo pa la pasada inicial completa
+     */
+    public IncrementalScc(DirectedGraph graph, SccAlgorithm initial) {
+        this(graph, initial, Progress.NONE);
+    }
+
+    /**
+     * Igual que el anterior, reportando el avance de la pasada inicial
+     * Si se cancela no queda enganchado al grafo
+     *
+     * @param graph el grafo a seguir
+     * @param initial el algoritmo pa la pasada inicial completa
+     * @param progress a quien avisarle el avance
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public IncrementalScc(DirectedGraph graph, SccAlgorithm initial, Progress progress) {
+        this.graph = graph;
+        this.algorithm = initial;
+        load(initial.findComponents(graph.freeze(), progress));
+        graph.addListener(this);
+    }
+
+    /**
+     * Recalcula todos los componentes desde cero con el algoritmo de la pasada inicial
+     * Pa cuando el grafo cambio de golpe; se llama solo al terminar un lote grande
+     */
+    public void rebuild() {
+        load(algorithm.findComponents(graph.freeze(), Progress.NONE));
+    }
+
+    /**
+     * Arma todas las estructuras a partir de un resultado completo
+     */
+    private void load(SCCResult r) {
+        int n = graph.getVertexCount();
+        comp = new int[Math.max(8, n)];
+        compCap = Math.max(8, r.count);
+        mem = new int[compCap][];
+        memCount = new int[compCap];
+        ord = new int[compCap];
+        stamp = new int[compCap];
+        reach = new boolean[compCap];
+        freeIds = new int[8];
+        freeCount = 0;
+        nextId = 0;
+        liveComps = 0;
+        order = new int[compCap];
+        fC = new int[compCap + 1];
+        fK = new int[compCap + 1];
+        fI = new int[compCap + 1];
+        visitedList = new int[compCap];
+        before = new int[compCap];
+        after = new int[compCap];
+        for (int c = 0; c < r.count; c++) {
+            int id = newComp();
+            for (int k = r.offsets[c]; k < r.offsets[c + 1]; k++) addMember(id, r.members[k]);
+            order[c] = id;
+            ord[id] = c;
+        }
+        slots = r.count;
+    }
+
+    /**
+     * Deja de seguir los cambios del grafo
+     */
+    public void detach() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Componente de un user
+     *
+     * @param v el indice del user
+     * @return el id interno del componente
+     */
+    public int componentOf(int v) { return comp[v]; }
+
+    /**
+     * Componente de un user por nombre
+     *
+     * @param name el nombre del user
+     * @return el id interno del componente o -1 si el user no existe
+     */
+    public int componentOf(String name) {
+        int v = graph.indexOf(name);
+        return v == -1 ? -1 : comp[v];
+    }
+
+    /**
+     * Dice si dos users estan en el mismo componente
+     *
+     * @param a el indice de un user
+     * @param b el indice del otro
+     * @return true si se alcanzan mutuamente
+     */
+    public boolean sameComponent(int a, int b) { return comp[a] == comp[b]; }
+
+    /**
+     * Mira el orden topologico de la condensacion: si el componente de b va
+     * antes que el de a, no hay camino de a a b. Cuesta O(1)
+     *
+     * @param a el user de donde se sale
+     * @param b el user a donde se quiere llegar
+     * @return false si seguro no hay camino; true si puede haberlo
+     */
+    public boolean mayReach(int a, int b) { return ord[comp[a]] <= ord[comp[b]]; }
+
+    /**
+     * Cuantos componentes hay ahora
+     *
+     * @return el numero de componentes
+     */
+    public int getComponentCount() { return liveComps; }
+
+    /**
+     * Cuantos users tiene un componente
+     *
+     * @param c el id interno del componente
+     * @return el tamaño del componente
+     */
+    public int componentSize(int c) { return memCount[c]; }
+
+    /**
+     * Foto del estado actual con ids densos en orden topologico
+     * Cuesta O(V), no recorre las aristas
+     *
+     * @return los componentes
+     */
+    public SCCResult toResult() {
+        int n = graph.getVertexCount();
+        int[] componentOf = new int[n];
+        int[] offsets = new int[liveComps + 1];
+        int[] members = new int[n];
+        int k = 0, pos = 0;
+        for (int p = 0; p < slots; p++) {
+            int c = order[p];
+            if (c == -1) continue;
+            offsets[k] = pos;
+            for (int j = 0; j < memCount[c]; j++) {
+                int v = mem[c][j];
+                members[pos++] = v;
+                componentOf[v] = k;
+            }
+            k++;
+        }
+        offsets[k] = pos;
+        SCCResult r = new SCCResult();
+        r.componentOf = componentOf;
+        r.offsets = offsets;
+        r.members = members;
+        r.count = k;
+        return r;
+    }
+
+    @Override
+    public void userAdded(int v) {
+        ensureVertexCapacity(v + 1);
+        int id = newComp();
+        addMember(id, v);
+        if (slots == order.length) order = grow(order, slots * 2);
+        order[slots] = id;
+        ord[id] = slots++;
+    }
+
+    @Override
+    public void batchStarted(int count) {
+        deferred = count >= REBUILD_MIN && (long) count * 8 >= graph.getEdgeCount();
+    }
+
+    @Override
+    public void batchFinished() {
+        if (!deferred) return;
+        deferred = false;
+        rebuild();
+    }
+
+    @Override
+    public void relationAdded(int from, int to) {
+        if (deferred) return;
+        int cu = comp[from];
+        int cv = comp[to];
+        if (cu == cv) return;
+        int lb = ord[cv];
+        int ub = ord[cu];
+        if (ub < lb) return; // ya respeta el orden
+
+        // DFS en la condensacion desde cv sin pasar de ub
+        epoch++;
+        int visited = 0;
+        int top = 0;
+        fC[0] = cv; fK[0] = 0; fI[0] = 0;
+        stamp[cv] = epoch;
+        reach[cv] = false;
+        visitedList[visited++] = cv;
+        while (top >= 0) {
+            int c = fC[top];
+            boolean pushed = false;
+            if (c != cu) {
+                while (!pushed && fK[top] < memCount[c]) {
+                    int x = mem[c][fK[top]];
+                    int cnt = graph.getNeighborsCount(x);
+                    while (fI[top] < cnt) {
+                        int cw = comp[graph.getNeighbor(x, fI[top]++)];
+                        if (cw == c || ord[cw] > ub) continue;
+                        if (stamp[cw] == epoch) {
+                            if (reach[cw]) reach[c] = true;
+                            continue;
+                        }
+                        stamp[cw] = epoch;
+                        reach[cw] = cw == cu;
+                        visitedList[visited++] = cw;
+                        top++;
+                        fC[top] = cw; fK[top] = 0; fI[top] = 0;
+                        pushed = true;
+                        break;
+                    }
+                    if (!pushed) { fK[top]++; fI[top] = 0; }
+                }
+            }
+            if (pushed) continue;
+            top--;
+            if (top >= 0 && reach[c]) reach[fC[top]] = true;
+        }
+
+        // junta los componentes del ciclo nuevo
+        int rep = -1;
+        if (stamp[cu] == epoch) {
+            for (int i = 0; i < visited; i++) {
+                int c = visitedList[i];
+                if (reach[c] && (rep == -1 || memCount[c] > memCount[rep])) rep = c;
+            }
+            for (int i = 0; i < visited; i++) {
+                int c = visitedList[i];
+                if (!reach[c] || c == rep) continue;
+                for (int j = 0; j < memCount[c]; j++) {
+                    comp[mem[c][j]] = rep;
+                    addMember(rep, mem[c][j]);
+                }
+                freeComp(c);
+            }
+        }
+
+        // reacomoda la ventana [lb, ub]: lo no visitado, el componente juntado y lo visitado
+        int nb = 0, na = 0;
+        for (int p = lb; p <= ub; p++) {
+            int c = order[p];
+            if (c == -1) continue;
+            if (stamp[c] != epoch) before[nb++] = c;
+            else if (rep == -1 || !reach[c]) after[na++] = c;
+        }
+        int p = lb;
+        for (int i = 0; i < nb; i++) place(before[i], p++);
+        if (rep != -1) place(rep, p++);
+        for (int i = 0; i < na; i++) place(after[i], p++);
+        while (p <= ub) order[p++] = -1;
+        compactIfSparse();
+    }
+
+    @Override
+    public void relationRemoved(int from, int to) {
+        if (comp[from] == comp[to]) split(comp[from]);
+    }
+
+    @Override
+    public void userRemoved(String name, int index, int movedFrom) {
+        int c = comp[index];
+        removeMember(c, index);
+        if (movedFrom != index) {
+            int cm = comp[movedFrom];
+            for (int j = 0; j < memCount[cm]; j++) {
+                if (mem[cm][j] == movedFrom) { mem[cm][j] = index; break; }
+            }
+            comp[index] = cm;
+        }
+        if (memCount[c] == 0) {
+            order[ord[c]] = -1;
+            freeComp(c);
+            compactIfSparse();
+        } else {
+            split(c);
+        }
+    }
+
+    /**
+     * Recalcula un componente con Tarjan local y lo parte si ya no es fuerte
+     * Los pedazos quedan en orden topologico en el lugar que tenia el componente
+     *
+     * @param c el componente a revisar
+     */
+    private void split(int c) {
+        int m = memCount[c];
+        if (m <= 1) return;
+        int[] members = mem[c];
+        ensureVertexCapacity(graph.getVertexCount());
+        for (int j = 0; j < m; j++) tIndex[members[j]] = -1;
+
+        int[] stack = new int[m];
+        int[] dfsV = new int[m];
+        int[] dfsPos = new int[m];
+        int[] out = new int[m];    // miembros en orden de hallazgo de los pedazos
+        int[] starts = new int[m + 1];
+        int pieces = 0, outPos = 0, sp = 0, counter = 0;
+
+        for (int j = 0; j < m; j++) {
+            int s = members[j];
+            if (tIndex[s] != -1) continue;
+            int top = 0;
+            dfsV[0] = s; dfsPos[0] = 0;
+            tIndex[s] = tLow[s] = counter++;
+            stack[sp++] = s; tOn[s] = true;
+            while (top >= 0) {
+                int v = dfsV[top];
+                int cnt = graph.getNeighborsCount(v);
+                int i = dfsPos[top];
+                if (i < cnt) {
+                    int w = graph.getNeighbor(v, i);
+                    dfsPos[top] = i + 1;
+                    if (comp[w] != c) continue;
+                    if (tIndex[w] == -1) {
+                        tIndex[w] = tLow[w] = counter++;
+                        stack[sp++] = w; tOn[w] = true;
+                        top++;
+                        dfsV[top] = w; dfsPos[top] = 0;
+                    } else if (tOn[w] && tIndex[w] < tLow[v]) {
+                        tLow[v] = tIndex[w];
+                    }
+                    continue;
+                }
+                if (tLow[v] == tIndex[v]) {
+                    starts[pieces++] = outPos;
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        tOn[w] = false;
+                        out[outPos++] = w;
+                    } while (w != v);
+                }
+                top--;
+                if (top >= 0 && tLow[v] < tLow[dfsV[top]]) tLow[dfsV[top]] = tLow[v];
+            }
+        }
+        starts[pieces] = outPos;
+        if (pieces == 1) return;
+
+        // Tarjan los da de sumidero pa atras: el ultimo pedazo va primero
+        int p = ord[c];
+        int extra = pieces - 1;
+        if (slots + extra > order.length) order = grow(order, (slots + extra) * 2);
+        for (int q = slots - 1; q > p; q--) {
+            int moved = order[q];
+            order[q + extra] = moved;
+            if (moved != -1) ord[moved] = q + extra;
+        }
+        slots += extra;
+
+        memCount[c] = 0;
+        for (int k = 0; k < pieces; k++) {
+            int piece = pieces - 1 - k;
+            int id = k == 0 ? c : newComp();
+            for (int j = starts[piece]; j < starts[piece + 1]; j++) {
+                comp[out[j]] = id;
+                addMember(id, out[j]);
+            }
+            order[p + k] = id;
+            ord[id] = p + k;
+        }
+    }
+
+    /**
+     * Pone un componente en una posicion del orden
+     */
+    private void place(int c, int p) {
+        order[p] = c;
+        ord[c] = p;
+    }
+
+    /**
+     * Si el orden tiene demasiados huecos lo vuelve a compactar
+     */
+    private void compactIfSparse() {
+        if (slots <= 2 * liveComps + 16) return;
+        int p = 0;
+        for (int q = 0; q < slots; q++) {
+            int c = order[q];
+            if (c != -1) place(c, p++);
+        }
+        slots = p;
+    }
+
+    /**
+     * Crea un componente vacio, reusando ids libres
+     */
+    private int newComp() {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == compCap) growComps(compCap * 2);
+        }
+        mem[id] = new int[2];
+        memCount[id] = 0;
+        liveComps++;
+        return id;
+    }
+
+    /**
+     * Libera un componente que quedo vacio o se junto con otro
+     */
+    private void freeComp(int c) {
+        mem[c] = null;
+        memCount[c] = 0;
+        if (freeCount == freeIds.length) freeIds = grow(freeIds, freeCount * 2);
+        freeIds[freeCount++] = c;
+        liveComps--;
+    }
+
+    private void addMember(int c, int v) {
+        if (memCount[c] == mem[c].length) mem[c] = grow(mem[c], memCount[c] * 2);
+        mem[c][memCount[c]++] = v;
+        if (v >= comp.length) ensureVertexCapacity(v + 1);
+        comp[v] = c;
+    }
+
+    private void removeMember(int c, int v) {
+        int[] row = mem[c];
+        for (int j = 0; j < memCount[c]; j++) {
+            if (row[j] == v) {
+                row[j] = row[--memCount[c]];
+                return;
+            }
+        }
+    }
+
+    private void growComps(int newCap) {
+        int[][] newMem = new int[newCap][];
+        System.arraycopy(mem, 0, newMem, 0, compCap);
+        mem = newMem;
+        memCount = grow(memCount, newCap);
+        ord = grow(ord, newCap);
+        stamp = grow(stamp, newCap);
+        boolean[] newReach = new boolean[newCap];
+        System.arraycopy(reach, 0, newReach, 0, compCap);
+        reach = newReach;
+        fC = grow(fC, newCap + 1);
+        fK = grow(fK, newCap + 1);
+        fI = grow(fI, newCap + 1);
+        visitedList = grow(visitedList, newCap);
+        before = grow(before, newCap);
+        after = grow(after, newCap);
+        compCap = newCap;
+    }
+
+    private void ensureVertexCapacity(int n) {
+        if (comp.length < n) comp = grow(comp, Math.max(n, comp.length * 2));
+        if (tIndex.length < n) {
+            int cap = Math.max(n, tIndex.length * 2);
+            tIndex = grow(tIndex, cap);
+            tLow = grow(tLow, cap);
+            boolean[] on = new boolean[cap];
+            System.arraycopy(tOn, 0, on, 0, tOn.length);
+            tOn = on;
+        }
+    }
+
+    private static int[] grow(int[] a, int len) {
+        if (a.length >= len) return a;
+        int[] out = new int[len];
+        System.arraycopy(a, 0, out, 0, a.length);
+        return out;
+    }
+}
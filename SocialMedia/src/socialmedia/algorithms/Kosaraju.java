@@ -4,90 +4,292 @@ package socialmedia.algorithms;
 @author JuanFerreira
  * @version 1.0
 */
-import socialmedia.model.DirectedGraph;
+import socialmedia.metrics.Metrics;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.NeighborCursor;
+import socialmedia.model.Progress;
+import java.util.Arrays;
 
-public class Kosaraju {
+public class Kosaraju implements SccAlgorithm {
 
+    // cada cuantos users visitados se reporta el avance
+    static final int REPORT_EVERY = 1 << 16;
+
+    /**
+     * Resultado del algoritmo en forma plana, O(V) de memoria
+     * Los miembros del componente c estan en
+     * members[offsets[c]] .. members[offsets[c + 1] - 1]
+     * Lo devuelven todos los SccAlgorithm, con los componentes en orden topologico
+     */
     public static class SCCResult {
-        public int[][] comps; // = nodos del componente i
-        public int count;    
+        public int[] componentOf; // componente de cada nodo
+        public int[] offsets;     // inicio de cada componente en members (count + 1)
+        public int[] members;     // nodos agrupados por componente
+        public int count;
+
+        private int[][] comps;
+
+        /**
+         * Cuantos nodos tiene el componente c
+         *
+         * @param c el componente
+         * @return el tamaño del componente
+         */
+        public int size(int c) { return offsets[c + 1] - offsets[c]; }
+
+        /**
+         * Vista vieja de los componentes: una fila por componente terminada en -1
+         * Se construye la primera vez que se pide, pa la UI
+         *
+         * @return las filas de cada componente
+         */
+        public int[][] getComps() {
+            if (comps == null) {
+                int[][] rows = new int[count][];
+                for (int c = 0; c < count; c++) {
+                    int size = size(c);
+                    int[] row = new int[size + 1];
+                    System.arraycopy(members, offsets[c], row, 0, size);
+                    row[size] = -1;
+                    rows[c] = row;
+                }
+                comps = rows;
+            }
+            return comps;
+        }
+
+        /**
+         * Dice si otro resultado agrupa los nodos igual que este
+         * No importa el orden ni la numeracion de los componentes
+         *
+         * @param other el otro resultado
+         * @return true si la particion es la misma
+         */
+        public boolean samePartition(SCCResult other) {
+            if (other.count != count || other.componentOf.length != componentOf.length) return false;
+            int[] mapped = new int[count];
+            for (int c = 0; c < count; c++) mapped[c] = -1;
+            boolean[] used = new boolean[count];
+            for (int v = 0; v < componentOf.length; v++) {
+                int a = componentOf[v];
+                int b = other.componentOf[v];
+                if (mapped[a] == -1) {
+                    if (used[b]) return false;
+                    mapped[a] = b;
+                    used[b] = true;
+                } else if (mapped[a] != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public String getName() { return "Kosaraju"; }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g) {
+        return findSCC(g);
+    }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g, Progress progress) {
+        return findSCC(g, progress);
+    }
+
+    @Override
+    public SCCResult findComponents(GraphView g, Progress progress) {
+        return findSCC(g, progress);
+    }
+
+    /**
+     * Corre Kosaraju sobre cualquier grafo (editable, CSR, comprimido o fuera del heap)
+     *
+     * @param g el grafo
+     * @return los componentes
+     */
+    public static SCCResult findSCC(GraphView g) {
+        return findSCC(g, Progress.NONE);
     }
 
-    public static SCCResult findSCC(DirectedGraph g) {
+    /**
+     * Corre Kosaraju reportando el avance: cada pasada visita todos los users,
+     * asi que el total son 2n visitas
+     *
+     * La primera pasada lee el grafo con su cursor, sin copiarlo. La segunda
+     * necesita el transpuesto: si es una foto CSR que ya lo trae se usa ese,
+     * si no se arma solo el reverso en CSR (no una copia entera del grafo)
+     *
+     * @param g el grafo
+     * @param progress a quien avisarle el avance
+     * @return los componentes
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static SCCResult findSCC(GraphView g, Progress progress) {
+        long t0 = Metrics.ENABLED ? Metrics.KOSARAJU_REVERSE.start() : 0;
+        int[][] reverse = reverse(g);
+        if (Metrics.ENABLED) Metrics.KOSARAJU_REVERSE.stop(t0);
         int n = g.getVertexCount();
+        NeighborCursor cur = g.cursor();
         boolean[] visited = new boolean[n];
-        int[] stack = new int[n];
-        int stackSize = 0;
+        int[] order = new int[n];
+        int orderSize = 0;
 
-        //DFS para llenar pila
-        for (int v = 0; v < n; v++) {
-            if (!visited[v]) {
-                stackSize = dfsOriginal(g, v, visited, stack, stackSize);
+        // pila explicita pa no reventar el stack de Java con cadenas largas;
+        // en la primera pasada el cursor esta en la fila del tope y los de
+        // abajo guardan su posicion pa volver con seek
+        int[] dfsV = new int[n];
+        long[] dfsPos = new long[n];
+        long total = 2L * n;
+        int seen = 0;
+        int maxDepth = 0;
+
+        //DFS para llenar pila (post orden)
+        t0 = Metrics.ENABLED ? Metrics.KOSARAJU_PASS1.start() : 0;
+        for (int s = 0; s < n; s++) {
+            if (visited[s]) continue;
+            int top = 0;
+            dfsV[0] = s;
+            cur.moveTo(s);
+            visited[s] = true;
+            if ((++seen & (REPORT_EVERY - 1)) == 0) report(progress, seen, total);
+            while (top >= 0) {
+                int w = -1;
+                while (cur.hasNext()) {
+                    int x = cur.nextInt();
+                    if (!visited[x]) {
+                        w = x;
+                        break;
+                    }
+                }
+                if (w != -1) {
+                    dfsPos[top] = cur.position();
+                    visited[w] = true;
+                    if ((++seen & (REPORT_EVERY - 1)) == 0) report(progress, seen, total);
+                    top++;
+                    if (Metrics.ENABLED && top > maxDepth) maxDepth = top;
+                    dfsV[top] = w;
+                    cur.moveTo(w);
+                } else {
+                    order[orderSize++] = dfsV[top];
+                    top--;
+                    if (top >= 0) cur.seek(dfsV[top], dfsPos[top]);
+                }
             }
         }
 
+        if (Metrics.ENABLED) Metrics.KOSARAJU_PASS1.stop(t0);
+
         //grafo transpuesto
-        int[][] T = new int[n][n];
-        int[] tCnt = new int[n];
-        for (int v = 0; v < n; v++) {
-            int cnt = g.getNeighborsCount(v);
-            int[] nb = g.getNeighborsBuffer(v);
-            for (int i = 0; i < cnt; i++) {
-                int w = nb[i];
-                T[w][tCnt[w]] = v;
-                tCnt[w]++;
-            }
-        }
+        int[] tOff = reverse[0];
+        int[] tTargets = reverse[1];
 
         // 3) DFS en transpuesto follow a la pila
         for (int i = 0; i < n; i++) visited[i] = false;
 
-        int[][] comps = new int[n][n + 1]; // 
+        int[] componentOf = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] members = new int[n];
+        int memberCount = 0;
         int compCount = 0;
-        int[] temp = new int[n];
-
-        for (int i = stackSize - 1; i >= 0; i--) {
-            int v = stack[i];
-            if (!visited[v]) {
-                int size = dfsTransposedCollect(T, tCnt, v, visited, temp, 0);
-                for (int k = 0; k < size; k++) comps[compCount][k] = temp[k];
-                comps[compCount][size] = -1; 
-                compCount++;
+
+        t0 = Metrics.ENABLED ? Metrics.KOSARAJU_PASS2.start() : 0;
+        for (int k = orderSize - 1; k >= 0; k--) {
+            int s = order[k];
+            if (visited[s]) continue;
+            offsets[compCount] = memberCount;
+            int top = 0;
+            dfsV[0] = s;
+            dfsPos[0] = tOff[s];
+            visited[s] = true;
+            componentOf[s] = compCount;
+            members[memberCount++] = s;
+            if ((memberCount & (REPORT_EVERY - 1)) == 0) report(progress, n + memberCount, total);
+            while (top >= 0) {
+                int v = dfsV[top];
+                int i = (int) dfsPos[top];
+                int end = tOff[v + 1];
+                while (i < end && visited[tTargets[i]]) i++;
+                if (i < end) {
+                    int w = tTargets[i];
+                    dfsPos[top] = i + 1;
+                    visited[w] = true;
+                    componentOf[w] = compCount;
+                    members[memberCount++] = w;
+                    if ((memberCount & (REPORT_EVERY - 1)) == 0) report(progress, n + memberCount, total);
+                    top++;
+                    if (Metrics.ENABLED && top > maxDepth) maxDepth = top;
+                    dfsV[top] = w;
+                    dfsPos[top] = tOff[w];
+                } else {
+                    top--;
+                }
             }
+            compCount++;
         }
+        offsets[compCount] = memberCount;
+        if (Metrics.ENABLED) Metrics.KOSARAJU_PASS2.stop(t0);
+        if (Metrics.ENABLED) Metrics.KOSARAJU_DEPTH.record(n == 0 ? 0 : maxDepth + 1);
+        progress.worked(total, total);
 
         SCCResult r = new SCCResult();
-        r.comps = comps;
+        r.componentOf = componentOf;
+        r.offsets = trim(offsets, compCount + 1);
+        r.members = members;
         r.count = compCount;
         return r;
     }
 
-    private static int dfsOriginal(DirectedGraph g, int v, boolean[] visited,
-                                   int[] stack, int stackSize) {
-        visited[v] = true;
-        int cnt = g.getNeighborsCount(v);
-        int[] nb = g.getNeighborsBuffer(v);
-        for (int i = 0; i < cnt; i++) {
-            int w = nb[i];
-            if (!visited[w]) {
-                stackSize = dfsOriginal(g, w, visited, stack, stackSize);
-            }
+    /**
+     * Arma el CSR reverso (quien sigue a cada user) leyendo el grafo con un cursor
+     * Si es una foto CSR que ya lo trae, se usa ese sin copiar
+     *
+     * @param g el grafo
+     * @return los offsets (n + 1) y los targets del reverso
+     * @throws IllegalStateException si hay demasiadas relaciones pa un CSR
+     */
+    static int[][] reverse(GraphView g) {
+        if (g instanceof CsrGraph && ((CsrGraph) g).hasReverse()) {
+            CsrGraph csr = (CsrGraph) g;
+            return new int[][] { csr.getReverseOffsets(), csr.getReverseTargets() };
+        }
+        if (g.getEdgeCount() > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many relations for a reverse CSR: " + g.getEdgeCount());
         }
-        stack[stackSize] = v;
-        return stackSize + 1;
+        int n = g.getVertexCount();
+        NeighborCursor cur = g.cursor();
+        int[] rOff = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            cur.moveTo(v);
+            while (cur.hasNext()) rOff[cur.nextInt() + 1]++;
+        }
+        for (int v = 0; v < n; v++) rOff[v + 1] += rOff[v];
+        int[] rTargets = new int[rOff[n]];
+        int[] fill = Arrays.copyOf(rOff, n);
+        for (int v = 0; v < n; v++) {
+            cur.moveTo(v);
+            while (cur.hasNext()) rTargets[fill[cur.nextInt()]++] = v;
+        }
+        return new int[][] { rOff, rTargets };
     }
 
-    private static int dfsTransposedCollect(int[][] T, int[] tCnt, int v,
-                                            boolean[] visited, int[] acc, int accSize) {
-        visited[v] = true;
-        acc[accSize] = v;
-        accSize++;
-        for (int i = 0; i < tCnt[v]; i++) {
-            int w = T[v][i];
-            if (!visited[w]) {
-                accSize = dfsTransposedCollect(T, tCnt, w, visited, acc, accSize);
-            }
-        }
-        return accSize;
+    /**
+     * Avisa el avance y corta si se cancelo
+     */
+    static void report(Progress progress, long done, long total) {
+        progress.worked(done, total);
+        progress.checkCancelled();
+    }
+
+    /**
+     * Corta un array al tamaño justo
+     */
+    private static int[] trim(int[] a, int len) {
+        if (a.length == len) return a;
+        int[] out = new int[len];
+        System.arraycopy(a, 0, out, 0, len);
+        return out;
     }
 }
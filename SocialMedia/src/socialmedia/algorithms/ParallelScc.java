@@ -0,0 +1,413 @@
+package socialmedia.algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.NeighborCursor;
+import socialmedia.model.Progress;
+
+/**
+ * SCC en paralelo con descomposicion forward-backward (FW-BW) sobre un ForkJoinPool
+ *
+ * Primero se recortan (trim) los nodos sin entradas o sin salidas, que son
+ * componentes de un solo nodo. Despues cada tarea toma un pivote, saca lo que
+ * alcanza (FW) y lo que lo alcanza (BW): FW ∩ BW es un componente y los tres
+ * pedazos que sobran (FW, BW y el resto) se resuelven en tareas aparte.
+ * Los pedazos chicos se terminan con un Tarjan local.
+ *
+ * Las relaciones de ida se leen del grafo con un cursor por tarea (sirve
+ * cualquier GraphView, tambien comprimido o fuera del heap); las de vuelta
+ * salen de un CSR reverso que se arma al empezar.
+ *
+ * Cada conjunto tiene un color propio, asi las tareas nunca tocan nodos de otra.
+ * La particion es la misma que la de Kosaraju, y los componentes se devuelven
+ * en orden topologico numerados de forma deterministica.
+ *
+ * @version 1.0
+ */
+public class ParallelScc implements SccAlgorithm {
+
+    // debajo de este tamaño no vale la pena partir mas, se usa Tarjan local
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    private final int parallelism;
+
+    /**
+     * Usa tantos hilos como procesadores tenga la maquina
+     */
+    public ParallelScc() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism cuantos hilos usar (minimo 1)
+     */
+    public ParallelScc(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Cuantos hilos usa este algoritmo
+     *
+     * @return el paralelismo configurado
+     */
+    public int getParallelism() { return parallelism; }
+
+    @Override
+    public String getName() { return "Parallel FW-BW"; }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g) {
+        return findComponents(g, Progress.NONE);
+    }
+
+    /**
+     * Reporta cuantos users ya tienen componente; los hilos del pool
+     * revisan la cancelacion antes de cada particion
+     */
+    @Override
+    public SCCResult findComponents(CsrGraph g, Progress progress) {
+        return findComponents((GraphView) g, progress);
+    }
+
+    @Override
+    public SCCResult findComponents(GraphView g, Progress progress) {
+        Run run = new Run(g, progress);
+        run.trim();
+        run.resolved(run.n - run.activeCount);
+        if (run.activeCount > 0) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new Split(run, run.active, run.activeCount, 0));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return run.toResult();
+    }
+
+    /**
+     * Estado compartido de una corrida
+     * Cada tarea solo escribe en los nodos de su color
+     */
+    private static final class Run {
+        final int n;
+        final GraphView g;
+        final int[] rOff, rTargets;
+        final int[] color;
+        final AtomicInteger nextColor = new AtomicInteger(1);
+        final Progress progress;
+        final AtomicLong resolved = new AtomicLong();
+
+        // pa el Tarjan local
+        final int[] index, low;
+        final boolean[] onStack;
+
+        int[] active;
+        int activeCount;
+
+        Run(GraphView g, Progress progress) {
+            this.progress = progress;
+            this.g = g;
+            n = g.getVertexCount();
+            int[][] reverse = Kosaraju.reverse(g);
+            rOff = reverse[0];
+            rTargets = reverse[1];
+            color = new int[n]; // 0 = sin resolver todavia
+            index = new int[n];
+            low = new int[n];
+            onStack = new boolean[n];
+        }
+
+        int freshColor() { return nextColor.getAndIncrement(); }
+
+        /**
+         * Suma users que ya tienen su componente definitivo
+         */
+        void resolved(int k) {
+            if (k > 0) progress.worked(resolved.addAndGet(k), n);
+        }
+
+        /**
+         * Saca los nodos que no tienen entradas o salidas dentro de lo que queda
+         * Cada uno es un componente de un solo nodo
+         */
+        void trim() {
+            int[] inDeg = new int[n];
+            int[] outDeg = new int[n];
+            for (int v = 0; v < n; v++) {
+                outDeg[v] = g.getNeighborsCount(v);
+                inDeg[v] = rOff[v + 1] - rOff[v];
+            }
+            int[] queue = new int[n];
+            int head = 0, tail = 0;
+            for (int v = 0; v < n; v++) {
+                if (inDeg[v] == 0 || outDeg[v] == 0) {
+                    color[v] = freshColor();
+                    queue[tail++] = v;
+                }
+            }
+            NeighborCursor cur = g.cursor();
+            while (head < tail) {
+                int v = queue[head++];
+                cur.moveTo(v);
+                while (cur.hasNext()) {
+                    int w = cur.nextInt();
+                    if (color[w] == 0 && --inDeg[w] == 0) {
+                        color[w] = freshColor();
+                        queue[tail++] = w;
+                    }
+                }
+                for (int i = rOff[v]; i < rOff[v + 1]; i++) {
+                    int w = rTargets[i];
+                    if (color[w] == 0 && --outDeg[w] == 0) {
+                        color[w] = freshColor();
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            active = new int[n - tail];
+            activeCount = 0;
+            for (int v = 0; v < n; v++) {
+                if (color[v] == 0) active[activeCount++] = v;
+            }
+        }
+
+        /**
+         * Tarjan restringido a los nodos de un color
+         * Cada componente que encuentra recibe un color nuevo
+         */
+        void localTarjan(int[] verts, int count, int c) {
+            NeighborCursor cur = g.cursor();
+            int[] stack = new int[count];
+            int[] dfsV = new int[count];
+            long[] dfsPos = new long[count];
+            int sp = 0;
+            int counter = 0;
+            for (int k = 0; k < count; k++) index[verts[k]] = -1;
+
+            for (int k = 0; k < count; k++) {
+                int s = verts[k];
+                if (index[s] != -1) continue;
+                int top = 0;
+                dfsV[0] = s;
+                cur.moveTo(s);
+                index[s] = low[s] = counter++;
+                stack[sp++] = s;
+                onStack[s] = true;
+                while (top >= 0) {
+                    int v = dfsV[top];
+                    if (cur.hasNext()) {
+                        int w = cur.nextInt();
+                        if (color[w] != c) continue;
+                        if (index[w] == -1) {
+                            dfsPos[top] = cur.position();
+                            index[w] = low[w] = counter++;
+                            stack[sp++] = w;
+                            onStack[w] = true;
+                            top++;
+                            dfsV[top] = w;
+                            cur.moveTo(w);
+                        } else if (onStack[w] && index[w] < low[v]) {
+                            low[v] = index[w];
+                        }
+                        continue;
+                    }
+                    if (low[v] == index[v]) {
+                        int comp = freshColor();
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            color[w] = comp;
+                        } while (w != v);
+                    }
+                    top--;
+                    if (top >= 0) {
+                        int u = dfsV[top];
+                        if (low[v] < low[u]) low[u] = low[v];
+                        cur.seek(u, dfsPos[top]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Pasa los colores a ids densos y ordena los componentes topologicamente
+         * Los ids iniciales salen del menor nodo de cada componente, asi el
+         * resultado no depende de como se repartieron las tareas
+         */
+        SCCResult toResult() {
+            int[] idOfColor = new int[nextColor.get()];
+            for (int i = 0; i < idOfColor.length; i++) idOfColor[i] = -1;
+            int[] comp = new int[n];
+            int count = 0;
+            for (int v = 0; v < n; v++) {
+                int c = color[v];
+                if (idOfColor[c] == -1) idOfColor[c] = count++;
+                comp[v] = idOfColor[c];
+            }
+
+            // miembros agrupados por id
+            int[] mOff = new int[count + 1];
+            for (int v = 0; v < n; v++) mOff[comp[v] + 1]++;
+            for (int c = 0; c < count; c++) mOff[c + 1] += mOff[c];
+            int[] mem = new int[n];
+            int[] fill = new int[count];
+            System.arraycopy(mOff, 0, fill, 0, count);
+            for (int v = 0; v < n; v++) mem[fill[comp[v]]++] = v;
+
+            // Kahn sobre la condensacion
+            NeighborCursor cur = g.cursor();
+            int[] inDeg = new int[count];
+            for (int v = 0; v < n; v++) {
+                cur.moveTo(v);
+                while (cur.hasNext()) {
+                    int cw = comp[cur.nextInt()];
+                    if (cw != comp[v]) inDeg[cw]++;
+                }
+            }
+            int[] topo = new int[count];
+            int head = 0, tail = 0;
+            for (int c = 0; c < count; c++) {
+                if (inDeg[c] == 0) topo[tail++] = c;
+            }
+            while (head < tail) {
+                int c = topo[head++];
+                for (int k = mOff[c]; k < mOff[c + 1]; k++) {
+                    cur.moveTo(mem[k]);
+                    while (cur.hasNext()) {
+                        int cw = comp[cur.nextInt()];
+                        if (cw != c && --inDeg[cw] == 0) topo[tail++] = cw;
+                    }
+                }
+            }
+
+            int[] rank = new int[count];
+            for (int k = 0; k < count; k++) rank[topo[k]] = k;
+            int[] componentOf = new int[n];
+            for (int v = 0; v < n; v++) componentOf[v] = rank[comp[v]];
+            int[] offsets = new int[count + 1];
+            int[] members = new int[n];
+            int pos = 0;
+            for (int k = 0; k < count; k++) {
+                int c = topo[k];
+                offsets[k] = pos;
+                for (int j = mOff[c]; j < mOff[c + 1]; j++) members[pos++] = mem[j];
+            }
+            offsets[count] = n;
+
+            SCCResult r = new SCCResult();
+            r.componentOf = componentOf;
+            r.offsets = offsets;
+            r.members = members;
+            r.count = count;
+            return r;
+        }
+    }
+
+    /**
+     * Tarea FW-BW sobre un conjunto de nodos del mismo color
+     */
+    @SuppressWarnings("serial") // tarea del pool, no se serializa
+    private static final class Split extends RecursiveAction {
+        private final Run run;
+        private final int[] verts;
+        private final int count;
+        private final int c;
+
+        Split(Run run, int[] verts, int count, int c) {
+            this.run = run;
+            this.verts = verts;
+            this.count = count;
+            this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            run.progress.checkCancelled();
+            if (count <= 1) { // un solo nodo con color propio ya es su componente
+                run.resolved(count);
+                return;
+            }
+            if (count <= SEQUENTIAL_THRESHOLD) {
+                run.localTarjan(verts, count, c);
+                run.resolved(count);
+                return;
+            }
+            int[] color = run.color;
+            int pivot = verts[0];
+            int fw = run.freshColor();
+            int bw = run.freshColor();
+            int scc = run.freshColor();
+            int[] queue = new int[count];
+            NeighborCursor cur = run.g.cursor(); // un cursor por tarea, no se comparten entre hilos
+
+            // lo que el pivote alcanza
+            int head = 0, tail = 0;
+            color[pivot] = fw;
+            queue[tail++] = pivot;
+            while (head < tail) {
+                int v = queue[head++];
+                // un solo BFS puede recorrer casi todo el grafo, se revisa tambien adentro
+                if ((head & (Kosaraju.REPORT_EVERY - 1)) == 0) run.progress.checkCancelled();
+                cur.moveTo(v);
+                while (cur.hasNext()) {
+                    int w = cur.nextInt();
+                    if (color[w] == c) {
+                        color[w] = fw;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+
+            // lo que alcanza al pivote; si tambien estaba en FW es parte del componente
+            head = 0; tail = 0;
+            color[pivot] = scc;
+            queue[tail++] = pivot;
+            while (head < tail) {
+                int v = queue[head++];
+                if ((head & (Kosaraju.REPORT_EVERY - 1)) == 0) run.progress.checkCancelled();
+                for (int i = run.rOff[v]; i < run.rOff[v + 1]; i++) {
+                    int w = run.rTargets[i];
+                    int cw = color[w];
+                    if (cw == c) {
+                        color[w] = bw;
+                        queue[tail++] = w;
+                    } else if (cw == fw) {
+                        color[w] = scc;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+
+            int fwCount = 0, bwCount = 0, restCount = 0;
+            for (int k = 0; k < count; k++) {
+                int cv = color[verts[k]];
+                if (cv == fw) fwCount++;
+                else if (cv == bw) bwCount++;
+                else if (cv == c) restCount++;
+            }
+            int[] fwSet = new int[fwCount];
+            int[] bwSet = new int[bwCount];
+            int[] restSet = new int[restCount];
+            fwCount = bwCount = restCount = 0;
+            for (int k = 0; k < count; k++) {
+                int v = verts[k];
+                int cv = color[v];
+                if (cv == fw) fwSet[fwCount++] = v;
+                else if (cv == bw) bwSet[bwCount++] = v;
+                else if (cv == c) restSet[restCount++] = v;
+            }
+            run.resolved(count - fwCount - bwCount - restCount);
+            invokeAll(new Split(run, fwSet, fwCount, fw),
+                      new Split(run, bwSet, bwCount, bw),
+                      new Split(run, restSet, restCount, c));
+        }
+    }
+}
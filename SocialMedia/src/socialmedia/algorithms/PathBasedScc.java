@@ -0,0 +1,133 @@
+package socialmedia.algorithms;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.NeighborCursor;
+import socialmedia.model.Progress;
+
+/**
+ * Algoritmo basado en caminos (Gabow) pa componentes fuertemente conectados
+ * Igual que Tarjan hace una sola pasada, pero en vez de low-links usa
+ * una segunda pila con los bordes de los componentes abiertos
+ * Lee los vecinos con un cursor, asi corre sobre cualquier GraphView
+ *
+ * @version 1.0
+ */
+public class PathBasedScc implements SccAlgorithm {
+
+    @Override
+    public String getName() { return "Path-based (Gabow)"; }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g) {
+        return findSCC(g, Progress.NONE);
+    }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g, Progress progress) {
+        return findSCC(g, progress);
+    }
+
+    @Override
+    public SCCResult findComponents(GraphView g, Progress progress) {
+        return findSCC(g, progress);
+    }
+
+    /**
+     * Corre el algoritmo de Gabow sobre cualquier grafo
+     *
+     * @param g el grafo
+     * @return los componentes en orden topologico
+     */
+    public static SCCResult findSCC(GraphView g) {
+        return findSCC(g, Progress.NONE);
+    }
+
+    /**
+     * Corre el algoritmo de Gabow reportando cuantos users lleva visitados
+     *
+     * @param g el grafo
+     * @param progress a quien avisarle el avance
+     * @return los componentes en orden topologico
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static SCCResult findSCC(GraphView g, Progress progress) {
+        int n = g.getVertexCount();
+        NeighborCursor cur = g.cursor();
+
+        int[] pre = new int[n];
+        for (int v = 0; v < n; v++) pre[v] = -1;
+        int counter = 0;
+
+        // S: nodos sin componente todavia, P: bordes de los caminos abiertos
+        int[] sStack = new int[n];
+        int sp = 0;
+        int[] pStack = new int[n];
+        int pp = 0;
+        boolean[] assigned = new boolean[n];
+
+        // el cursor esta en la fila del tope, los de abajo vuelven con seek
+        int[] dfsV = new int[n];
+        long[] dfsPos = new long[n];
+
+        int[] componentOf = new int[n];
+        int[] members = new int[n];
+        int[] start = new int[n];
+        int writePos = n;
+        int found = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (pre[s] != -1) continue;
+            int top = 0;
+            dfsV[0] = s;
+            cur.moveTo(s);
+            pre[s] = counter++;
+            if ((counter & (Kosaraju.REPORT_EVERY - 1)) == 0) Kosaraju.report(progress, counter, n);
+            sStack[sp++] = s;
+            pStack[pp++] = s;
+
+            while (top >= 0) {
+                int v = dfsV[top];
+                if (cur.hasNext()) {
+                    int w = cur.nextInt();
+                    if (pre[w] == -1) {
+                        dfsPos[top] = cur.position();
+                        pre[w] = counter++;
+                        if ((counter & (Kosaraju.REPORT_EVERY - 1)) == 0) Kosaraju.report(progress, counter, n);
+                        sStack[sp++] = w;
+                        pStack[pp++] = w;
+                        top++;
+                        dfsV[top] = w;
+                        cur.moveTo(w);
+                    } else if (!assigned[w]) {
+                        // w sigue abierto: se juntan los caminos hasta w
+                        while (pre[pStack[pp - 1]] > pre[w]) pp--;
+                    }
+                    continue;
+                }
+
+                // v termino
+                if (pStack[pp - 1] == v) {
+                    pp--;
+                    int k = sp;
+                    do { k--; } while (sStack[k] != v);
+                    int size = sp - k;
+                    writePos -= size;
+                    System.arraycopy(sStack, k, members, writePos, size);
+                    for (int j = k; j < sp; j++) {
+                        assigned[sStack[j]] = true;
+                        componentOf[sStack[j]] = found;
+                    }
+                    start[found++] = writePos;
+                    sp = k;
+                }
+                top--;
+                if (top >= 0) cur.seek(dfsV[top], dfsPos[top]);
+            }
+        }
+
+        progress.worked(n, n);
+        return Tarjan.reverseOrder(componentOf, members, start, found);
+    }
+}
@@ -0,0 +1,318 @@
+package socialmedia.algorithms;
+
+import socialmedia.model.DirectedGraph;
+import socialmedia.model.GraphListener;
+import socialmedia.model.NeighborCursor;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Consultas de alcance y distancia sobre un DirectedGraph
+ *
+ * - distance: cuantas relaciones hay que seguir de a hasta b, con BFS
+ *   bidireccional (de ida desde a, de vuelta desde b por los seguidores),
+ *   expandiendo siempre el lado con la frontera mas chica
+ * - canReach: si hay camino de a a b. Con un IncrementalScc se contesta en
+ *   O(1) cuando estan en el mismo componente o cuando el orden topologico
+ *   de la condensacion ya dice que no; si no, se busca con distance
+ * - countWithinHops: cuantos users se alcanzan en k pasos o menos, con BFS
+ *   por niveles donde la frontera y los visitados son bitsets
+ *
+ * Las relaciones van en el sentido de "sigue a": si B sigue a A, B ve lo que
+ * publica A. Asi que "lo que publica A le llega a B" es canReach(B, A)
+ *
+ * Las respuestas se guardan en un cache LRU con tope, que se vacia cuando
+ * cambia una relacion o se borra un user (se registra como listener).
+ * Las marcas de visitado llevan un numero de consulta, asi una consulta no
+ * tiene que limpiar arrays del tamaño del grafo
+ *
+ * No es thread-safe: se usa desde un solo hilo, igual que el grafo
+ *
+ * @version 1.0
+ */
+public class QueryEngine implements GraphListener {
+
+    /** Cuantas respuestas guarda cada cache si no se dice otra cosa */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private final DirectedGraph graph;
+    private final IncrementalScc scc;
+    private final NeighborCursor out;
+    private final NeighborCursor in;
+    private final Map<Long, Integer> distances;
+    private final Map<Long, Integer> hopCounts;
+
+    // BFS bidireccional: marca de consulta, distancia y cola de cada lado
+    private int epoch;
+    private int[] stampF = new int[0], stampB = new int[0];
+    private int[] distF = new int[0], distB = new int[0];
+    private int[] queueF = new int[0], queueB = new int[0];
+
+    // BFS por niveles con bitsets
+    private long[] visited = new long[0], frontier = new long[0], next = new long[0];
+
+    /**
+     * Crea el motor de consultas sin componentes
+     *
+     * @param graph el grafo a consultar
+     */
+    public QueryEngine(DirectedGraph graph) {
+        this(graph, null, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Crea el motor de consultas usando los componentes pa los atajos O(1)
+     *
+     * @param graph el grafo a consultar
+     * @param scc los componentes del mismo grafo al dia, o null
+     */
+    public QueryEngine(DirectedGraph graph, IncrementalScc scc) {
+        this(graph, scc, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Crea el motor de consultas
+     *
+     * @param graph el grafo a consultar
+     * @param scc los componentes del mismo grafo al dia, o null
+     * @param cacheSize cuantas respuestas guardar de cada tipo
+     */
+    public QueryEngine(DirectedGraph graph, IncrementalScc scc, int cacheSize) {
+        this.graph = graph;
+        this.scc = scc;
+        this.out = graph.cursor();
+        this.in = graph.inCursor();
+        this.distances = lru(cacheSize);
+        this.hopCounts = lru(cacheSize);
+        graph.addListener(this);
+    }
+
+    private static Map<Long, Integer> lru(int max) {
+        return new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    /**
+     * Deja de escuchar al grafo
+     */
+    public void detach() {
+        graph.removeListener(this);
+        clearCache();
+    }
+
+    /**
+     * Olvida todas las respuestas guardadas
+     */
+    public void clearCache() {
+        distances.clear();
+        hopCounts.clear();
+    }
+
+    /**
+     * Cuantas respuestas hay guardadas
+     *
+     * @return el tamaño de los caches juntos
+     */
+    public int getCachedCount() { return distances.size() + hopCounts.size(); }
+
+    /**
+     * Dice si hay un camino de a hasta b siguiendo las relaciones
+     *
+     * @param a el user de donde se sale
+     * @param b el user a donde se quiere llegar
+     * @return true si b se alcanza desde a
+     */
+    public boolean canReach(int a, int b) {
+        check(a);
+        check(b);
+        if (a == b) return true;
+        if (scc != null && scc.sameComponent(a, b)) return true;
+        return distance(a, b) >= 0;
+    }
+
+    /**
+     * Cuantas relaciones hay que seguir como minimo de a hasta b
+     *
+     * @param a el user de donde se sale
+     * @param b el user a donde se quiere llegar
+     * @return la distancia, o -1 si no se alcanza
+     */
+    public int distance(int a, int b) {
+        check(a);
+        check(b);
+        if (a == b) return 0;
+        if (scc != null && !scc.mayReach(a, b)) return -1;
+        Long key = ((long) a << 32) | b;
+        Integer hit = distances.get(key);
+        if (hit != null) return hit;
+        int d = bidirectional(a, b);
+        distances.put(key, d);
+        return d;
+    }
+
+    /**
+     * Cuantos users (sin contar a a) se alcanzan en k relaciones o menos
+     *
+     * @param a el user de donde se sale
+     * @param k cuantos pasos como maximo
+     * @return cuantos users distintos se alcanzan
+     */
+    public int countWithinHops(int a, int k) {
+        check(a);
+        if (k < 0) throw new IllegalArgumentException("Negative hop count: " + k);
+        Long key = ((long) a << 32) | k;
+        Integer hit = hopCounts.get(key);
+        if (hit != null) return hit;
+        int c = levels(a, k);
+        hopCounts.put(key, c);
+        return c;
+    }
+
+    /**
+     * Cuantos users (sin contar a a) se alcanzan desde a
+     *
+     * @param a el user de donde se sale
+     * @return cuantos users distintos se alcanzan
+     */
+    public int countReachable(int a) {
+        return countWithinHops(a, Integer.MAX_VALUE);
+    }
+
+    private void check(int v) {
+        if (v < 0 || v >= graph.getVertexCount()) {
+            throw new IndexOutOfBoundsException("User index out of range: " + v);
+        }
+    }
+
+    /**
+     * BFS desde los dos lados, de a un nivel completo por vez
+     * Al terminar un nivel donde los lados se tocaron, el minimo de ese nivel es la distancia
+     */
+    private int bidirectional(int a, int b) {
+        ensureCapacity();
+        if (++epoch == Integer.MAX_VALUE) resetStamps();
+        int e = epoch;
+        stampF[a] = e; distF[a] = 0; queueF[0] = a;
+        stampB[b] = e; distB[b] = 0; queueB[0] = b;
+        int fHead = 0, fTail = 1, bHead = 0, bTail = 1;
+        int fLevel = 0, bLevel = 0;
+
+        while (fHead < fTail && bHead < bTail) {
+            int best = Integer.MAX_VALUE;
+            if (fTail - fHead <= bTail - bHead) {
+                int end = fTail;
+                for (; fHead < end; fHead++) {
+                    out.moveTo(queueF[fHead]);
+                    while (out.hasNext()) {
+                        int w = out.nextInt();
+                        if (stampF[w] == e) continue;
+                        stampF[w] = e;
+                        distF[w] = fLevel + 1;
+                        queueF[fTail++] = w;
+                        if (stampB[w] == e) best = Math.min(best, fLevel + 1 + distB[w]);
+                    }
+                }
+                fLevel++;
+            } else {
+                int end = bTail;
+                for (; bHead < end; bHead++) {
+                    in.moveTo(queueB[bHead]);
+                    while (in.hasNext()) {
+                        int w = in.nextInt();
+                        if (stampB[w] == e) continue;
+                        stampB[w] = e;
+                        distB[w] = bLevel + 1;
+                        queueB[bTail++] = w;
+                        if (stampF[w] == e) best = Math.min(best, bLevel + 1 + distF[w]);
+                    }
+                }
+                bLevel++;
+            }
+            if (best != Integer.MAX_VALUE) return best;
+        }
+        return -1;
+    }
+
+    /**
+     * BFS por niveles con la frontera en un bitset, hasta k niveles
+     */
+    private int levels(int a, int k) {
+        ensureCapacity();
+        int words = (graph.getVertexCount() + 63) >>> 6;
+        Arrays.fill(visited, 0, words, 0L);
+        Arrays.fill(frontier, 0, words, 0L);
+        visited[a >>> 6] |= 1L << a;
+        frontier[a >>> 6] |= 1L << a;
+        int count = 0;
+        for (int level = 0; level < k; level++) {
+            Arrays.fill(next, 0, words, 0L);
+            boolean any = false;
+            for (int i = 0; i < words; i++) {
+                long bits = frontier[i];
+                while (bits != 0) {
+                    int u = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    out.moveTo(u);
+                    while (out.hasNext()) {
+                        int w = out.nextInt();
+                        long m = 1L << w;
+                        if ((visited[w >>> 6] & m) != 0) continue;
+                        visited[w >>> 6] |= m;
+                        next[w >>> 6] |= m;
+                        count++;
+                        any = true;
+                    }
+                }
+            }
+            if (!any) break;
+            long[] t = frontier;
+            frontier = next;
+            next = t;
+        }
+        return count;
+    }
+
+    /**
+     * Agranda los arrays de trabajo si el grafo crecio
+     */
+    private void ensureCapacity() {
+        int n = graph.getVertexCount();
+        if (stampF.length < n) {
+            int cap = Math.max(n, stampF.length + (stampF.length >> 1));
+            stampF = new int[cap];
+            stampB = new int[cap];
+            distF = new int[cap];
+            distB = new int[cap];
+            queueF = new int[cap];
+            queueB = new int[cap];
+            epoch = 0;
+        }
+        int words = (n + 63) >>> 6;
+        if (visited.length < words) {
+            int cap = Math.max(words, visited.length + (visited.length >> 1));
+            visited = new long[cap];
+            frontier = new long[cap];
+            next = new long[cap];
+        }
+    }
+
+    private void resetStamps() {
+        Arrays.fill(stampF, 0);
+        Arrays.fill(stampB, 0);
+        epoch = 1;
+    }
+
+    @Override
+    public void relationAdded(int from, int to) { clearCache(); }
+
+    @Override
+    public void relationRemoved(int from, int to) { clearCache(); }
+
+    @Override
+    public void userRemoved(String name, int index, int movedFrom) { clearCache(); }
+}
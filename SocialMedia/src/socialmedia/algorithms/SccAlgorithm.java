@@ -0,0 +1,75 @@
+package socialmedia.algorithms;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.Progress;
+
+/**
+ * Contrato comun pa los algoritmos de componentes fuertemente conectados
+ * Todas las implementaciones son iterativas. Las de aca leen cualquier
+ * GraphView con su cursor (asi un grafo comprimido o fuera del heap no se
+ * copia a CSR); si una implementacion solo sabe de CSR, el default saca la foto
+ * Los componentes salen en orden topologico de la condensacion
+ * (primero los que no tienen flechas entrando desde otros componentes)
+ *
+ * @version 1.0
+ */
+public interface SccAlgorithm {
+
+    /**
+     * Nombre del algoritmo pa mostrarlo
+     *
+     * @return el nombre
+     */
+    String getName();
+
+    /**
+     * Busca los componentes fuertemente conectados de una foto CSR
+     *
+     * @param g la foto del grafo
+     * @return los componentes
+     */
+    SCCResult findComponents(CsrGraph g);
+
+    /**
+     * Busca los componentes de cualquier grafo (editable, comprimido o
+     * fuera del heap)
+     *
+     * @param g el grafo
+     * @return los componentes
+     */
+    default SCCResult findComponents(GraphView g) {
+        return findComponents(g, Progress.NONE);
+    }
+
+    /**
+     * Igual que findComponents(GraphView) reportando el avance
+     * Por defecto le saca una foto CSR al grafo (si no lo es ya)
+     *
+     * @param g el grafo
+     * @param progress a quien avisarle el avance
+     * @return los componentes
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    default SCCResult findComponents(GraphView g, Progress progress) {
+        return findComponents(g instanceof CsrGraph ? (CsrGraph) g : CsrGraph.from(g), progress);
+    }
+
+    /**
+     * Igual que findComponents pero reportando los users visitados
+     * y parando si se cancela. Si el algoritmo no sabe reportar,
+     * solo revisa la cancelacion antes y despues
+     *
+     * @param g la foto del grafo
+     * @param progress a quien avisarle el avance
+     * @return los componentes
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    default SCCResult findComponents(CsrGraph g, Progress progress) {
+        progress.checkCancelled();
+        SCCResult r = findComponents(g);
+        progress.checkCancelled();
+        return r;
+    }
+}
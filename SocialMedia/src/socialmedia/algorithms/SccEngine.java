@@ -0,0 +1,70 @@
+package socialmedia.algorithms;
+
+/**
+ * Selector de los algoritmos de SCC disponibles
+ * Lo usa la ventana principal y cualquiera que corra el analisis sin UI
+ *
+ * @version 1.0
+ */
+public enum SccEngine {
+
+    KOSARAJU("Kosaraju"),
+    TARJAN("Tarjan"),
+    PATH_BASED("Path-based (Gabow)"),
+    PARALLEL("Parallel FW-BW");
+
+    private final String label;
+
+    SccEngine(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Crea una instancia del algoritmo
+     *
+     * @return el algoritmo listo pa usar
+     */
+    public SccAlgorithm create() {
+        switch (this) {
+            case TARJAN: return new Tarjan();
+            case PATH_BASED: return new PathBasedScc();
+            case PARALLEL: return new ParallelScc();
+            default: return new Kosaraju();
+        }
+    }
+
+    /**
+     * Crea el algoritmo con un numero de hilos dado
+     * Solo el paralelo usa el parametro, los demas son de un hilo
+     *
+     * @param parallelism cuantos hilos usar
+     * @return el algoritmo listo pa usar
+     */
+    public SccAlgorithm create(int parallelism) {
+        if (this == PARALLEL) return new ParallelScc(parallelism);
+        return create();
+    }
+
+    /**
+     * Busca un algoritmo por nombre, sin importar mayusculas
+     * Acepta el nombre del enum ("path_based") o el label ("tarjan")
+     *
+     * @param name el nombre a buscar
+     * @return el algoritmo
+     * @throws IllegalArgumentException si no hay ninguno con ese nombre
+     */
+    public static SccEngine fromName(String name) {
+        String key = name.trim().replace('-', '_');
+        for (SccEngine e : values()) {
+            if (e.name().equalsIgnoreCase(key) || e.label.equalsIgnoreCase(name.trim())) return e;
+        }
+        if (key.equalsIgnoreCase("gabow")) return PATH_BASED;
+        if (key.equalsIgnoreCase("fwbw") || key.equalsIgnoreCase("fw_bw")) return PARALLEL;
+        throw new IllegalArgumentException("Unknown SCC algorithm: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,163 @@
+package socialmedia.algorithms;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.NeighborCursor;
+import socialmedia.model.Progress;
+
+/**
+ * Algoritmo de Tarjan pa componentes fuertemente conectados
+ * Hace una sola pasada DFS y no necesita el grafo transpuesto
+ * Usa pila explicita, asi que aguanta cadenas de seguidores muy largas
+ * Lee los vecinos con un cursor, asi corre sobre cualquier GraphView
+ * (comprimido o fuera del heap) sin pasarlo antes a CSR
+ *
+ * @version 1.0
+ */
+public class Tarjan implements SccAlgorithm {
+
+    @Override
+    public String getName() { return "Tarjan"; }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g) {
+        return findSCC(g, Progress.NONE);
+    }
+
+    @Override
+    public SCCResult findComponents(CsrGraph g, Progress progress) {
+        return findSCC(g, progress);
+    }
+
+    @Override
+    public SCCResult findComponents(GraphView g, Progress progress) {
+        return findSCC(g, progress);
+    }
+
+    /**
+     * Corre Tarjan sobre cualquier grafo
+     *
+     * @param g el grafo
+     * @return los componentes en orden topologico
+     */
+    public static SCCResult findSCC(GraphView g) {
+        return findSCC(g, Progress.NONE);
+    }
+
+    /**
+     * Corre Tarjan reportando cuantos users lleva visitados
+     *
+     * @param g el grafo
+     * @param progress a quien avisarle el avance
+     * @return los componentes en orden topologico
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static SCCResult findSCC(GraphView g, Progress progress) {
+        int n = g.getVertexCount();
+        NeighborCursor cur = g.cursor();
+
+        int[] index = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        for (int v = 0; v < n; v++) index[v] = -1;
+        int counter = 0;
+
+        // pila de Tarjan
+        int[] stack = new int[n];
+        int sp = 0;
+
+        // pila de llamadas del DFS; el cursor esta en la fila del tope,
+        // los niveles de abajo guardan donde quedaron pa volver con seek
+        int[] dfsV = new int[n];
+        long[] dfsPos = new long[n];
+
+        // los componentes salen de los sumideros pa atras,
+        // asi que se van escribiendo desde el final de members
+        int[] componentOf = new int[n];
+        int[] members = new int[n];
+        int[] start = new int[n];
+        int writePos = n;
+        int found = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (index[s] != -1) continue;
+            int top = 0;
+            dfsV[0] = s;
+            cur.moveTo(s);
+            index[s] = low[s] = counter++;
+            if ((counter & (Kosaraju.REPORT_EVERY - 1)) == 0) Kosaraju.report(progress, counter, n);
+            stack[sp++] = s;
+            onStack[s] = true;
+
+            while (top >= 0) {
+                int v = dfsV[top];
+                if (cur.hasNext()) {
+                    int w = cur.nextInt();
+                    if (index[w] == -1) {
+                        dfsPos[top] = cur.position();
+                        index[w] = low[w] = counter++;
+                        if ((counter & (Kosaraju.REPORT_EVERY - 1)) == 0) Kosaraju.report(progress, counter, n);
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        top++;
+                        dfsV[top] = w;
+                        cur.moveTo(w);
+                    } else if (onStack[w] && index[w] < low[v]) {
+                        low[v] = index[w];
+                    }
+                    continue;
+                }
+
+                // v termino
+                if (low[v] == index[v]) {
+                    int k = sp;
+                    do { k--; } while (stack[k] != v);
+                    int size = sp - k;
+                    writePos -= size;
+                    System.arraycopy(stack, k, members, writePos, size);
+                    for (int j = k; j < sp; j++) {
+                        onStack[stack[j]] = false;
+                        componentOf[stack[j]] = found;
+                    }
+                    start[found++] = writePos;
+                    sp = k;
+                }
+                top--;
+                if (top >= 0) {
+                    int u = dfsV[top];
+                    if (low[v] < low[u]) low[u] = low[v];
+                    cur.seek(u, dfsPos[top]);
+                }
+            }
+        }
+
+        progress.worked(n, n);
+        return reverseOrder(componentOf, members, start, found);
+    }
+
+    /**
+     * Arma el resultado poniendo los componentes en orden topologico
+     * Los algoritmos de una pasada los encuentran al reves (sumideros primero)
+     *
+     * @param componentOf componente de cada nodo, numerado en orden de hallazgo
+     * @param members miembros ya escritos desde el final
+     * @param start inicio de cada componente en members, en orden de hallazgo
+     * @param count cuantos componentes hay
+     * @return el resultado con los ids invertidos
+     */
+    static SCCResult reverseOrder(int[] componentOf, int[] members, int[] start, int count) {
+        int n = componentOf.length;
+        for (int v = 0; v < n; v++) componentOf[v] = count - 1 - componentOf[v];
+        int[] offsets = new int[count + 1];
+        for (int c = 0; c < count; c++) offsets[c] = start[count - 1 - c];
+        offsets[count] = n;
+
+        SCCResult r = new SCCResult();
+        r.componentOf = componentOf;
+        r.offsets = offsets;
+        r.members = members;
+        r.count = count;
+        return r;
+    }
+}
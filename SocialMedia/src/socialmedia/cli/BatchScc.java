@@ -0,0 +1,323 @@
+package socialmedia.cli;
+
+import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.algorithms.SccAlgorithm;
+import socialmedia.algorithms.SccEngine;
+import socialmedia.io.BinaryGraphFormat;
+import socialmedia.io.FileSocialMedia;
+import socialmedia.io.GraphJournal;
+import socialmedia.metrics.Metrics;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.Progress;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Modo de linea de comandos: carga un grafo, corre el SCC y escribe los
+ * componentes sin abrir ninguna ventana, pa servidores y tareas programadas
+ *
+ * Los componentes se escriben directo desde el resultado plano a un buffer,
+ * sin armar un String con todo, asi la salida puede ser tan grande como el
+ * grafo. Las estadisticas (tiempos y memoria) van a stderr pa no ensuciar la salida
+ * Con -Dsocialmedia.metrics=true tambien va a stderr el reporte de Metrics
+ *
+ * <pre>
+ * java -jar SocialMedia.jar red_social.txt --algorithm tarjan --format csv --output sccs.csv
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class BatchScc {
+
+    private static final String USAGE =
+        "Usage: SocialMedia <graph-file> [options]\n"
+        + "  -a, --algorithm NAME   kosaraju (default), tarjan, path-based, parallel\n"
+        + "  -t, --threads N        threads for the parallel algorithm\n"
+        + "  -f, --format FORMAT    text (default), csv or json\n"
+        + "  -o, --output FILE      write the components to FILE instead of stdout\n"
+        + "  -m, --min-size K       only write components with at least K users\n"
+        + "  -q, --quiet            don't print statistics to stderr\n"
+        + "  -h, --help             show this help";
+
+    private enum Format { TEXT, CSV, JSON }
+
+    private File input;
+    private SccEngine engine = SccEngine.KOSARAJU;
+    private int threads;
+    private Format format = Format.TEXT;
+    private File output;
+    private int minSize = 1;
+    private boolean quiet;
+
+    /**
+     * Corre el modo batch y termina el proceso con el codigo de salida
+     *
+     * @param args los argumentos de la linea de comandos
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Corre el modo batch
+     *
+     * @param args los argumentos de la linea de comandos
+     * @param out donde van los componentes si no se pidio un archivo
+     * @param err donde van los errores y las estadisticas
+     * @return 0 si todo salio bien, 1 si hubo error de lectura o escritura, 2 si los argumentos estan mal
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        BatchScc batch = new BatchScc();
+        try {
+            if (!batch.parse(args)) {
+                out.println(USAGE);
+                return 0;
+            }
+        } catch (IllegalArgumentException ex) {
+            err.println(ex.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        try {
+            batch.execute(out, err);
+            return 0;
+        } catch (IOException ex) {
+            err.println("Error: " + ex.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Lee los argumentos
+     *
+     * @return false si solo se pidio la ayuda
+     * @throws IllegalArgumentException si algun argumento no es valido
+     */
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "-h": case "--help":
+                    return false;
+                case "-a": case "--algorithm":
+                    engine = SccEngine.fromName(value(args, ++i, a));
+                    break;
+                case "-t": case "--threads":
+                    threads = number(value(args, ++i, a), a);
+                    break;
+                case "-f": case "--format":
+                    String f = value(args, ++i, a);
+                    try {
+                        format = Format.valueOf(f.toUpperCase());
+                    } catch (IllegalArgumentException ex) {
+                        throw new IllegalArgumentException("Unknown format: " + f);
+                    }
+                    break;
+                case "-o": case "--output":
+                    output = new File(value(args, ++i, a));
+                    break;
+                case "-m": case "--min-size":
+                    minSize = number(value(args, ++i, a), a);
+                    break;
+                case "-q": case "--quiet":
+                    quiet = true;
+                    break;
+                default:
+                    if (a.startsWith("-") || input != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + a);
+                    }
+                    input = new File(a);
+            }
+        }
+        if (input == null) throw new IllegalArgumentException("Missing graph file.");
+        return true;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+        return args[i];
+    }
+
+    private static int number(String s, String option) {
+        try {
+            int n = Integer.parseInt(s);
+            if (n < 1) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + s);
+        }
+    }
+
+    /**
+     * Carga, calcula y escribe, midiendo cada fase
+     */
+    private void execute(PrintStream out, PrintStream err) throws IOException {
+        if (!input.isFile()) throw new FileNotFoundException("File not found: " + input);
+
+        // los avisos del cargador (relaciones rotas) van a err, la salida es solo de componentes
+        Progress progress = new Progress() {
+            @Override
+            public void worked(long done, long total) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+
+            @Override
+            public void warn(String message) {
+                err.println(message);
+            }
+        };
+        long t0 = System.nanoTime();
+        // los binarios se leen directo del archivo mapeado, sin armar un DirectedGraph,
+        // y los algoritmos los recorren ahi mismo con el cursor, sin copiarlos al heap.
+        // Si tienen bitacora al lado hay que aplicarla, asi que van por loadFromFile
+        boolean mapped = BinaryGraphFormat.isBinary(input) && !GraphJournal.logFileFor(input).exists();
+        GraphView graph = mapped ? BinaryGraphFormat.map(input) : FileSocialMedia.loadFromFile(input, progress);
+        long t1 = System.nanoTime();
+        // el DirectedGraph de un texto se pasa a una foto CSR, que se recorre mas rapido
+        // que sus filas sueltas, y el grafo editable se puede soltar
+        if (!mapped) graph = CsrGraph.from(graph, engine == SccEngine.KOSARAJU);
+        long t2 = System.nanoTime();
+        SccAlgorithm algorithm = threads > 0 ? engine.create(threads) : engine.create();
+        SCCResult r = algorithm.findComponents(graph);
+        long t3 = System.nanoTime();
+
+        OutputStream os = output == null ? out : new FileOutputStream(output);
+        Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16);
+        int written;
+        try {
+            written = write(w, graph, r, algorithm);
+            w.flush();
+        } finally {
+            if (output != null) w.close();
+        }
+        long t4 = System.nanoTime();
+
+        if (!quiet) {
+            err.println("Graph:      " + graph.getVertexCount() + " users, " + graph.getEdgeCount() + " relations"
+                    + (mapped ? " (mapped)" : ""));
+            err.println("Algorithm:  " + algorithm.getName());
+            err.println("Components: " + r.count + " (" + written + " written, largest " + largest(r) + ")");
+            err.println("Load:       " + millis(t0, t1));
+            err.println("Snapshot:   " + millis(t1, t2));
+            err.println("SCC:        " + millis(t2, t3));
+            err.println("Write:      " + millis(t3, t4));
+            err.println("Total:      " + millis(t0, t4));
+            err.println("Peak heap:  " + (peakHeap() >> 20) + " MB");
+            if (Metrics.ENABLED) err.print(Metrics.report());
+        }
+    }
+
+    /**
+     * Escribe los componentes en el formato elegido
+     *
+     * @return cuantos componentes se escribieron
+     */
+    private int write(Writer w, GraphView g, SCCResult r, SccAlgorithm algorithm) throws IOException {
+        int written = 0;
+        if (format == Format.CSV) {
+            w.write("component,size,user\n");
+        } else if (format == Format.JSON) {
+            w.write("{\"algorithm\":");
+            json(w, algorithm.getName());
+            w.write(",\"users\":" + g.getVertexCount() + ",\"relations\":" + g.getEdgeCount()
+                    + ",\"count\":" + r.count + ",\"components\":[");
+        }
+        for (int c = 0; c < r.count; c++) {
+            int size = r.size(c);
+            if (size < minSize) continue;
+            written++;
+            int from = r.offsets[c];
+            if (format == Format.TEXT) {
+                w.write("Component " + (c + 1) + ":");
+                for (int i = from; i < from + size; i++) {
+                    w.write(' ');
+                    w.write(g.getUserByIndex(r.members[i]));
+                }
+                w.write('\n');
+            } else if (format == Format.CSV) {
+                String prefix = (c + 1) + "," + size + ",";
+                for (int i = from; i < from + size; i++) {
+                    w.write(prefix);
+                    csv(w, g.getUserByIndex(r.members[i]));
+                    w.write('\n');
+                }
+            } else {
+                if (written > 1) w.write(',');
+                w.write("\n[");
+                for (int i = from; i < from + size; i++) {
+                    if (i > from) w.write(',');
+                    json(w, g.getUserByIndex(r.members[i]));
+                }
+                w.write(']');
+            }
+        }
+        if (format == Format.JSON) w.write("\n]}\n");
+        return written;
+    }
+
+    /**
+     * Escribe un campo CSV, con comillas solo si hace falta
+     */
+    private static void csv(Writer w, String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            w.write(s);
+            return;
+        }
+        w.write('"');
+        w.write(s.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    /**
+     * Escribe un String JSON con sus escapes
+     */
+    private static void json(Writer w, String s) throws IOException {
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                w.write('\\');
+                w.write(c);
+            } else if (c < 0x20) {
+                w.write(String.format("\\u%04x", (int) c));
+            } else {
+                w.write(c);
+            }
+        }
+        w.write('"');
+    }
+
+    private static int largest(SCCResult r) {
+        int max = 0;
+        for (int c = 0; c < r.count; c++) max = Math.max(max, r.size(c));
+        return max;
+    }
+
+    private static String millis(long from, long to) {
+        return String.format("%.1f ms", (to - from) / 1e6);
+    }
+
+    /**
+     * Suma del uso maximo de cada pool del heap desde que arranco la JVM
+     */
+    private static long peakHeap() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) total += pool.getPeakUsage().getUsed();
+        }
+        return total;
+    }
+}
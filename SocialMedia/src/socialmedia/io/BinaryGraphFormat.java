@@ -0,0 +1,443 @@
+package socialmedia.io;
+
+import socialmedia.model.CompressedGraph;
+import socialmedia.model.CsrGraph;
+import socialmedia.model.DirectedGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.OffHeapGraph;
+import socialmedia.model.Progress;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Formato binario compacto pa guardar y cargar el grafo rapido
+ * Cada nombre se guarda una sola vez y las relaciones van como CSR,
+ * asi cargar es casi solo copiar arrays desde el archivo mapeado en memoria,
+ * o ni eso: map deja el grafo leyendo directo del archivo (OffHeapGraph)
+ *
+ * Todo en little-endian:
+ * <pre>
+ *   0  magic "SMGB"
+ *   4  int version (1)
+ *   8  int n         (users)
+ *  12  int m         (relaciones)
+ *  16  int nameBytes (tamaño de la tabla de nombres)
+ *  20  int[n + 1]    inicio de cada nombre en la tabla
+ *      byte[nameBytes] nombres en UTF-8 seguidos
+ *      relleno hasta multiplo de 4
+ *      int[n + 1]    offsets CSR
+ *      int[m]        targets CSR
+ * </pre>
+ *
+ * Al cargar o mapear se revisa que las secciones cuadren (offsets que
+ * empiezan en 0, no bajan y terminan en m, targets entre 0 y n - 1, nombres
+ * dentro de la tabla); un archivo cortado o roto da IOException
+ *
+ * @version 1.0
+ */
+public class BinaryGraphFormat {
+
+    /** Extension que usa FileSocialMedia pa elegir este formato al guardar */
+    public static final String EXTENSION = ".smgb";
+
+    static final int MAGIC = 0x42474D53; // "SMGB" leido en little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 20;
+
+    // ventana maxima que se mapea de una vez (los MappedByteBuffer llegan a 2 GB)
+    private static final long WINDOW = 1L << 30;
+
+    /**
+     * Dice si un archivo empieza con la marca del formato binario
+     *
+     * @param f el archivo a revisar
+     * @return true si es un grafo binario
+     * @throws IOException si no se puede leer
+     */
+    public static boolean isBinary(File f) throws IOException {
+        if (f.length() < HEADER_BYTES) return false;
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(head, 0);
+            return head.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Guarda un grafo en formato binario
+     * Las relaciones se escriben fila por fila, sin sacar una foto CSR antes
+     *
+     * @param g el grafo a guardar
+     * @param f el archivo destino
+     * @throws IOException si hay error escribiendo o el grafo no cabe en el formato
+     */
+    public static void save(GraphView g, File f) throws IOException {
+        int n = g.getVertexCount();
+        byte[][] encoded = new byte[n][];
+        int[] nameOff = new int[n + 1];
+        int[] offsets = new int[n + 1];
+        long nameTotal = 0;
+        long m = 0;
+        for (int v = 0; v < n; v++) {
+            encoded[v] = g.getUserByIndex(v).getBytes(StandardCharsets.UTF_8);
+            nameTotal += encoded[v].length;
+            m += g.getNeighborsCount(v);
+            if (nameTotal > Integer.MAX_VALUE || m > Integer.MAX_VALUE) {
+                throw new IOException("Graph too large for the binary format: " + f.getName());
+            }
+            nameOff[v + 1] = (int) nameTotal;
+            offsets[v + 1] = (int) m;
+        }
+        int nameBytes = nameOff[n];
+
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(offsets[n]).putInt(nameBytes);
+            buf = putInts(ch, buf, nameOff, nameOff.length);
+            for (int v = 0; v < n; v++) {
+                byte[] b = encoded[v];
+                int pos = 0;
+                while (pos < b.length) {
+                    if (!buf.hasRemaining()) buf = drain(ch, buf);
+                    int len = Math.min(buf.remaining(), b.length - pos);
+                    buf.put(b, pos, len);
+                    pos += len;
+                }
+            }
+            for (int pad = nameBytes; (pad & 3) != 0; pad++) {
+                if (!buf.hasRemaining()) buf = drain(ch, buf);
+                buf.put((byte) 0);
+            }
+            buf = putInts(ch, buf, offsets, n + 1);
+            int[] row = new int[16];
+            for (int v = 0; v < n; v++) {
+                int cnt = offsets[v + 1] - offsets[v];
+                if (row.length < cnt) row = new int[Math.max(cnt, row.length * 2)];
+                g.copyNeighbors(v, row, 0);
+                buf = putInts(ch, buf, row, cnt);
+            }
+            drain(ch, buf);
+        }
+    }
+
+    /**
+     * Carga un archivo binario como foto CSR de solo lectura
+     *
+     * @param f el archivo a cargar
+     * @return la foto del grafo
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     */
+    public static CsrGraph loadCsr(File f) throws IOException {
+        return loadCsr(f, Progress.NONE);
+    }
+
+    /**
+     * Carga un archivo binario como foto CSR reportando los bytes leidos
+     * Se copia por secciones, la cancelacion se revisa entre una y otra
+     *
+     * @param f el archivo a cargar
+     * @param progress a quien avisarle el avance
+     * @return la foto del grafo
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static CsrGraph loadCsr(File f, Progress progress) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            Layout l = readLayout(ch, f);
+            String[] names = readNames(ch, l, progress);
+
+            progress.checkCancelled();
+            int[] offsets = new int[l.n + 1];
+            readInts(ch, l.csrStart, offsets);
+            checkOffsets(IntBuffer.wrap(offsets), l.m, "relation offsets", f);
+            int[] targets = new int[l.m];
+            readInts(ch, l.targetsStart(), targets);
+            checkTargets(IntBuffer.wrap(targets), l.n, f);
+            progress.worked(l.end(), l.end());
+            return CsrGraph.wrap(names, offsets, targets);
+        }
+    }
+
+    /**
+     * Deja el grafo de un archivo binario leyendose directo del archivo mapeado
+     * No se copia nada al heap: el sistema operativo trae las paginas cuando hacen falta
+     * Las secciones se revisan una vez al mapear (se leen enteras, sin copiarlas)
+     * El archivo no se debe modificar mientras se use el grafo
+     *
+     * @param f el archivo binario
+     * @return el grafo fuera del heap
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     */
+    public static OffHeapGraph map(File f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            Layout l = readLayout(ch, f);
+            IntBuffer nameOff = mapInts(ch, HEADER_BYTES, l.n + 1L);
+            checkOffsets(nameOff, -1, "name offsets", f);
+            if (nameOff.get(l.n) > l.nameBytes) throw corrupt(f, "names past the name table");
+            ByteBuffer names = ch.map(FileChannel.MapMode.READ_ONLY, l.namesStart, l.nameBytes);
+            IntBuffer offsets = mapInts(ch, l.csrStart, l.n + 1L);
+            checkOffsets(offsets, l.m, "relation offsets", f);
+            int parts = (int) ((l.m + (long) OffHeapGraph.CHUNK_INTS - 1) / OffHeapGraph.CHUNK_INTS);
+            IntBuffer[] targets = new IntBuffer[parts];
+            for (int i = 0; i < parts; i++) {
+                long first = (long) i * OffHeapGraph.CHUNK_INTS;
+                targets[i] = mapInts(ch, l.targetsStart() + 4L * first, Math.min(OffHeapGraph.CHUNK_INTS, l.m - first));
+                checkTargets(targets[i], l.n, f);
+            }
+            try {
+                return OffHeapGraph.wrap(nameOff, names, offsets, targets);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Corrupt binary graph file: " + f.getName(), ex);
+            }
+        }
+    }
+
+    private static IntBuffer mapInts(FileChannel ch, long pos, long count) throws IOException {
+        if (4L * count > Integer.MAX_VALUE) throw new IOException("Section too large to map: " + count + " ints");
+        return ch.map(FileChannel.MapMode.READ_ONLY, pos, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * Carga un archivo binario directo a una foto comprimida
+     *
+     * @param f el archivo a cargar
+     * @return la foto comprimida
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     */
+    public static CompressedGraph loadCompressed(File f) throws IOException {
+        return loadCompressed(f, Progress.NONE);
+    }
+
+    /**
+     * Carga un archivo binario directo a una foto comprimida reportando el avance
+     * Las relaciones se leen fila por fila desde el archivo mapeado y se
+     * comprimen enseguida, asi nunca esta el array completo de targets en el heap
+     *
+     * @param f el archivo a cargar
+     * @param progress a quien avisarle el avance
+     * @return la foto comprimida
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static CompressedGraph loadCompressed(File f, Progress progress) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            Layout l = readLayout(ch, f);
+            String[] names = readNames(ch, l, progress);
+            int n = l.n;
+            int[] offsets = new int[n + 1];
+            readInts(ch, l.csrStart, offsets);
+            checkOffsets(IntBuffer.wrap(offsets), l.m, "relation offsets", f);
+
+            CompressedGraph.Builder b = new CompressedGraph.Builder(names);
+            int[] row = new int[16];
+            long next = l.targetsStart(); // posicion en el archivo del proximo target
+            IntBuffer window = IntBuffer.allocate(0);
+            for (int v = 0; v < n; v++) {
+                int cnt = offsets[v + 1] - offsets[v];
+                if (row.length < cnt) row = new int[Math.max(cnt, row.length * 2)];
+                int got = 0;
+                while (got < cnt) {
+                    if (!window.hasRemaining()) {
+                        long len = Math.min(WINDOW, l.end() - next);
+                        window = ch.map(FileChannel.MapMode.READ_ONLY, next, len)
+                                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                        progress.worked(next, l.end());
+                        progress.checkCancelled();
+                    }
+                    int k = Math.min(window.remaining(), cnt - got);
+                    window.get(row, got, k);
+                    got += k;
+                    next += 4L * k;
+                }
+                try {
+                    b.addRow(row, cnt);
+                } catch (IndexOutOfBoundsException ex) {
+                    throw corrupt(f, "relation target out of range in row " + v);
+                }
+            }
+            progress.worked(l.end(), l.end());
+            return b.build();
+        }
+    }
+
+    /** Donde queda cada seccion de un archivo binario */
+    private static final class Layout {
+        File file;
+        int n;
+        int m;
+        int nameBytes;
+        long namesStart;
+        long csrStart;
+
+        long targetsStart() { return csrStart + 4L * (n + 1); }
+
+        long end() { return targetsStart() + 4L * m; }
+    }
+
+    /**
+     * Lee y valida el encabezado
+     */
+    private static Layout readLayout(FileChannel ch, File f) throws IOException {
+        long size = ch.size();
+        if (size < HEADER_BYTES) throw new IOException("Not a binary graph file: " + f.getName());
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ch.read(head, 0);
+        if (head.getInt(0) != MAGIC) throw new IOException("Not a binary graph file: " + f.getName());
+        int version = head.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported binary graph version: " + version);
+        Layout l = new Layout();
+        l.file = f;
+        l.n = head.getInt(8);
+        l.m = head.getInt(12);
+        l.nameBytes = head.getInt(16);
+        l.namesStart = HEADER_BYTES + 4L * (l.n + 1);
+        l.csrStart = align4(l.namesStart + l.nameBytes);
+        if (l.n < 0 || l.n > Integer.MAX_VALUE - 8 || l.m < 0 || l.nameBytes < 0 || size < l.end()) {
+            throw new IOException("Truncated binary graph file: " + f.getName());
+        }
+        return l;
+    }
+
+    /**
+     * Lee la tabla de nombres
+     */
+    private static String[] readNames(FileChannel ch, Layout l, Progress progress) throws IOException {
+        int n = l.n;
+        int[] nameOff = new int[n + 1];
+        readInts(ch, HEADER_BYTES, nameOff);
+        checkOffsets(IntBuffer.wrap(nameOff), -1, "name offsets", l.file);
+        if (nameOff[n] > l.nameBytes) throw corrupt(l.file, "names past the name table");
+        byte[] table = new byte[l.nameBytes];
+        readBytes(ch, l.namesStart, table);
+        progress.worked(l.csrStart, l.end());
+        progress.checkCancelled();
+        String[] names = new String[n];
+        for (int v = 0; v < n; v++) {
+            names[v] = new String(table, nameOff[v], nameOff[v + 1] - nameOff[v], StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    /**
+     * Revisa que unos offsets empiecen en 0 y no bajen nunca
+     *
+     * @param off los offsets (n + 1), desde la posicion 0 del buffer
+     * @param total en cuanto tienen que terminar, o -1 si no se sabe
+     * @param what que seccion es, pa el mensaje
+     * @param f el archivo, pa el mensaje
+     * @throws IOException si no cuadran
+     */
+    private static void checkOffsets(IntBuffer off, long total, String what, File f) throws IOException {
+        int len = off.limit();
+        if (off.get(0) != 0) throw corrupt(f, what + " do not start at 0");
+        int prev = 0;
+        for (int i = 1; i < len; i++) {
+            int x = off.get(i);
+            if (x < prev) throw corrupt(f, what + " decrease at " + i);
+            prev = x;
+        }
+        if (total >= 0 && prev != total) throw corrupt(f, what + " end at " + prev + " instead of " + total);
+    }
+
+    /**
+     * Revisa que todos los targets sean users validos
+     *
+     * @param targets los targets, desde la posicion 0 del buffer
+     * @param n cuantos users hay
+     * @param f el archivo, pa el mensaje
+     * @throws IOException si alguno se sale
+     */
+    private static void checkTargets(IntBuffer targets, int n, File f) throws IOException {
+        for (int i = 0, len = targets.limit(); i < len; i++) {
+            int t = targets.get(i);
+            if (t < 0 || t >= n) throw corrupt(f, "relation target " + t + " out of range");
+        }
+    }
+
+    private static IOException corrupt(File f, String detail) {
+        return new IOException("Corrupt binary graph file: " + f.getName() + " (" + detail + ")");
+    }
+
+    /**
+     * Carga un archivo binario como grafo editable
+     *
+     * @param f el archivo a cargar
+     * @return el grafo
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     */
+    public static DirectedGraph load(File f) throws IOException {
+        return load(f, Progress.NONE);
+    }
+
+    /**
+     * Carga un archivo binario como grafo editable reportando el avance
+     *
+     * @param f el archivo a cargar
+     * @param progress a quien avisarle el avance
+     * @return el grafo
+     * @throws IOException si hay error leyendo o el archivo no es valido
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static DirectedGraph load(File f, Progress progress) throws IOException {
+        CsrGraph csr = loadCsr(f, progress);
+        progress.checkCancelled();
+        return csr.toDirectedGraph();
+    }
+
+    static long align4(long x) {
+        return (x + 3) & ~3L;
+    }
+
+    /**
+     * Copia ints desde el archivo mapeando ventanas de hasta 1 GB
+     */
+    static void readInts(FileChannel ch, long pos, int[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int len = (int) Math.min(dst.length - done, WINDOW / 4);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, pos + 4L * done, 4L * len);
+            map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(dst, done, len);
+            done += len;
+        }
+    }
+
+    /**
+     * Copia bytes desde el archivo mapeando ventanas de hasta 1 GB
+     */
+    static void readBytes(FileChannel ch, long pos, byte[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int len = (int) Math.min(dst.length - done, WINDOW);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, pos + done, len);
+            map.get(dst, done, len);
+            done += len;
+        }
+    }
+
+    private static ByteBuffer putInts(FileChannel ch, ByteBuffer buf, int[] src, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            if (buf.remaining() < 4) buf = drain(ch, buf);
+            int len = Math.min(buf.remaining() / 4, count - done);
+            buf.asIntBuffer().put(src, done, len);
+            buf.position(buf.position() + 4 * len);
+            done += len;
+        }
+        return buf;
+    }
+
+    private static ByteBuffer drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+        return buf;
+    }
+}
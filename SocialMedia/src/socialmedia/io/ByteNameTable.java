@@ -0,0 +1,140 @@
+package socialmedia.io;
+
+/**
+ * Tabla de nombres de users indexada por sus bytes UTF-8
+ * Deja buscar un nombre directo desde el buffer del archivo sin crear un String
+ * Cada nombre se guarda una sola vez en un pool de bytes compartido
+ *
+ * Varias secuencias de bytes pueden apuntar al mismo indice (alias): pasa con
+ * UTF-8 roto, donde bytes distintos decodifican al mismo String y el grafo
+ * los toma como un solo user
+ *
+ * Cada slot guarda juntos [indice + 1, hash, inicio en el pool, largo], asi una
+ * busqueda toca una sola linea de cache de la tabla mas los bytes del nombre
+ *
+ * Las busquedas no modifican nada, asi que varios hilos pueden buscar a la vez
+ * mientras nadie este agregando
+ *
+ * @version 1.0
+ */
+class ByteNameTable {
+
+    private static final int STRIDE = 4;
+
+    private byte[] pool;
+    private int poolSize;
+    private int count;   // indices repartidos
+    private int entries; // secuencias de bytes guardadas (con los alias)
+
+    // indice + 1 (0 = libre), hash, inicio, largo
+    private int[] slots;
+    private int mask;
+
+    ByteNameTable() {
+        pool = new byte[1 << 12];
+        slots = new int[128 * STRIDE];
+        mask = 127;
+    }
+
+    /**
+     * Hash de un pedazo de bytes
+     */
+    static int hash(byte[] b, int off, int len) {
+        int h = 0x811C9DC5;
+        for (int i = off; i < off + len; i++) {
+            h = (h ^ b[i]) * 0x01000193;
+        }
+        // mezcla final pa que los bits bajos (los del slot) queden bien repartidos
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Busca un nombre
+     *
+     * @param b bytes donde esta el nombre
+     * @param off inicio del nombre
+     * @param len largo del nombre
+     * @return el indice del nombre o -1 si no esta
+     */
+    int get(byte[] b, int off, int len) {
+        int h = hash(b, off, len);
+        int i = h & mask;
+        int s;
+        while ((s = slots[i * STRIDE]) != 0) {
+            int p = i * STRIDE;
+            if (slots[p + 1] == h && slots[p + 3] == len && equalsPool(slots[p + 2], b, off, len)) {
+                return s - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Agrega un nombre nuevo, el que llama ya verifico que no estaba
+     *
+     * @return el indice asignado (el orden de llegada)
+     */
+    int add(byte[] b, int off, int len) {
+        put(b, off, len, count);
+        return count++;
+    }
+
+    /**
+     * Agrega otra secuencia de bytes pa un indice que ya existe
+     * El que llama ya verifico que esos bytes no estaban
+     *
+     * @param k el indice al que apuntan
+     */
+    void alias(byte[] b, int off, int len, int k) {
+        put(b, off, len, k);
+    }
+
+    private void put(byte[] b, int off, int len, int k) {
+        if ((entries + 1) * 2 > mask + 1) rehash((mask + 1) * 2);
+        if (poolSize + len > pool.length) {
+            byte[] bigger = new byte[Math.max(pool.length * 2, poolSize + len)];
+            System.arraycopy(pool, 0, bigger, 0, poolSize);
+            pool = bigger;
+        }
+        System.arraycopy(b, off, pool, poolSize, len);
+        insert(k, hash(b, off, len), poolSize, len);
+        poolSize += len;
+        entries++;
+    }
+
+    /**
+     * Cuantos nombres hay
+     */
+    int size() { return count; }
+
+    private boolean equalsPool(int p, byte[] b, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            if (pool[p + i] != b[off + i]) return false;
+        }
+        return true;
+    }
+
+    private void insert(int k, int h, int start, int len) {
+        int i = h & mask;
+        while (slots[i * STRIDE] != 0) i = (i + 1) & mask;
+        int p = i * STRIDE;
+        slots[p] = k + 1;
+        slots[p + 1] = h;
+        slots[p + 2] = start;
+        slots[p + 3] = len;
+    }
+
+    private void rehash(int newCap) {
+        int[] old = slots;
+        slots = new int[newCap * STRIDE];
+        mask = newCap - 1;
+        for (int p = 0; p < old.length; p += STRIDE) {
+            if (old[p] != 0) insert(old[p] - 1, old[p + 1], old[p + 2], old[p + 3]);
+        }
+    }
+}
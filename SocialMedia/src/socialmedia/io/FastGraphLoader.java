@@ -0,0 +1,460 @@
+package socialmedia.io;
+
+import socialmedia.metrics.Metrics;
+import socialmedia.model.DirectedGraph;
+import socialmedia.model.Progress;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cargador rapido del formato de texto "usuarios" / "relaciones"
+ *
+ * Lee el archivo por bloques grandes con un FileChannel y separa las lineas
+ * directo sobre los bytes, sin readLine, trim ni split. Los nombres de las
+ * relaciones se buscan por sus bytes en una tabla, asi cada nombre se convierte
+ * a String una sola vez (cuando aparece en la seccion de usuarios). Las
+ * relaciones se juntan en arrays de int y se pasan al grafo al final.
+ *
+ * Acepta lo mismo que el cargador de lineas: secciones sin importar
+ * mayusculas, lineas vacias, espacios alrededor de los nombres y de la coma,
+ * y fines de linea \n, \r\n o \r. Los nombres se leen como UTF-8.
+ *
+ * Objetivo de rendimiento: millones de relaciones por segundo en un solo
+ * nucleo. El parseo casi no cuesta; lo que domina son los accesos al azar a
+ * la tabla de nombres y a las filas del grafo, asi que el numero real depende
+ * de la memoria de la maquina mas que del tamaño del archivo.
+ *
+ * Con varios hilos la seccion de usuarios se lee igual, en orden, y el resto
+ * del archivo (las relaciones) se corta en pedazos que empiezan y terminan en
+ * un fin de linea. Cada hilo parsea su pedazo con lecturas posicionales,
+ * busca los nombres en la tabla ya terminada (solo lectura) y junta sus
+ * relaciones en sus propios arrays; al final se pegan en el orden del
+ * archivo, asi el grafo queda igual que cargandolo con un solo hilo.
+ * Si despues de "relaciones" aparece otra seccion, se carga en orden.
+ *
+ * @version 1.0
+ */
+public class FastGraphLoader {
+
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    // pedazos por hilo, pa que un pedazo lento no deje a los demas esperando
+    private static final int RANGES_PER_THREAD = 4;
+
+    private static final byte[] USUARIOS = ascii("usuarios");
+    private static final byte[] USERS = ascii("users");
+    private static final byte[] RELACIONES = ascii("relaciones");
+    private static final byte[] RELATIONS = ascii("relations");
+
+    private static final int NONE = 0, USER_SECTION = 1, RELATION_SECTION = 2;
+
+    private final DirectedGraph graph = new DirectedGraph();
+    private final ByteNameTable names = new ByteNameTable();
+    private int section = NONE;
+    private final Edges edges = new Edges();
+
+    // si se para al llegar a las relaciones, y donde empiezan en el archivo
+    private boolean stopAtRelations;
+    private long relationsAt = -1;
+
+    private FastGraphLoader() {
+    }
+
+    /**
+     * Carga un grafo desde un archivo de texto
+     *
+     * @param f el archivo a cargar
+     * @return el grafo con todos los users y sus relaciones
+     * @throws IOException si hay error leyendo el archivo
+     */
+    public static DirectedGraph load(File f) throws IOException {
+        return load(f, Progress.NONE);
+    }
+
+    /**
+     * Carga un grafo desde un archivo de texto reportando los bytes leidos
+     * La cancelacion se revisa despues de cada bloque
+     * Las relaciones con users que no existen se saltan y se avisan con
+     * progress.warn, una sola vez con el total
+     *
+     * @param f el archivo a cargar
+     * @param progress a quien avisarle el avance
+     * @return el grafo con todos los users y sus relaciones
+     * @throws IOException si hay error leyendo el archivo
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static DirectedGraph load(File f, Progress progress) throws IOException {
+        FastGraphLoader loader = new FastGraphLoader();
+        long t0 = Metrics.ENABLED ? Metrics.LOAD_PARSE.start() : 0;
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            loader.read(ch, progress);
+        }
+        if (Metrics.ENABLED) Metrics.LOAD_PARSE.stop(t0);
+        return loader.finish(new Edges[] { loader.edges }, progress);
+    }
+
+    /**
+     * Carga un grafo desde un archivo de texto parseando las relaciones en paralelo
+     * El resultado es el mismo que con load(f, progress)
+     *
+     * @param f el archivo a cargar
+     * @param threads cuantos hilos usar (1 = en orden)
+     * @param progress a quien avisarle el avance
+     * @return el grafo con todos los users y sus relaciones
+     * @throws IOException si hay error leyendo el archivo
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static DirectedGraph load(File f, int threads, Progress progress) throws IOException {
+        if (threads <= 1) return load(f, progress);
+        FastGraphLoader loader = new FastGraphLoader();
+        loader.stopAtRelations = true;
+        Edges[] parts;
+        long t0 = Metrics.ENABLED ? Metrics.LOAD_PARSE.start() : 0;
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            loader.read(ch, progress);
+            if (loader.relationsAt < 0) return loader.finish(new Edges[0], progress);
+            parts = loader.parseParallel(ch, threads, progress);
+        }
+        if (parts == null) return load(f, progress); // otra seccion despues de las relaciones
+        if (Metrics.ENABLED) Metrics.LOAD_PARSE.stop(t0);
+        return loader.finish(parts, progress);
+    }
+
+    /**
+     * Lee el canal por bloques y procesa cada linea completa
+     * Si una linea queda cortada al final del bloque se mueve al inicio
+     */
+    private void read(FileChannel ch, Progress progress) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BLOCK_SIZE);
+        long total = ch.size();
+        long readBytes = 0;
+        long base = 0; // posicion en el archivo de b[0]
+        boolean eof = false;
+        while (!eof) {
+            if (!buf.hasRemaining()) {
+                // una sola linea mas grande que el buffer
+                ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+            int got = ch.read(buf);
+            eof = got < 0;
+            if (!eof) {
+                readBytes += got;
+                progress.worked(readBytes, total);
+                progress.checkCancelled();
+            }
+            byte[] b = buf.array();
+            int limit = buf.position();
+            int start = 0;
+            for (int i = 0; i < limit; i++) {
+                byte c = b[i];
+                if (c == '\n' || c == '\r') {
+                    line(b, start, i);
+                    start = i + 1;
+                    if (stopAtRelations && section == RELATION_SECTION) {
+                        relationsAt = base + start;
+                        return;
+                    }
+                }
+            }
+            if (eof && start < limit) {
+                line(b, start, limit);
+                start = limit;
+                if (stopAtRelations && section == RELATION_SECTION) relationsAt = base + start;
+            }
+            // lo que sobra pasa al inicio del buffer
+            System.arraycopy(b, start, b, 0, limit - start);
+            buf.position(limit - start);
+            base += start;
+        }
+    }
+
+    /**
+     * Parsea las relaciones desde relationsAt hasta el final con varios hilos
+     *
+     * @return las relaciones de cada pedazo en orden, o null si algun pedazo
+     *         tiene otro encabezado de seccion
+     */
+    private Edges[] parseParallel(FileChannel ch, int threads, Progress progress) throws IOException {
+        long size = ch.size();
+        int count = (int) Math.max(1, Math.min((long) threads * RANGES_PER_THREAD, (size - relationsAt) / BLOCK_SIZE + 1));
+        long[] bounds = new long[count + 1];
+        bounds[0] = relationsAt;
+        bounds[count] = size;
+        for (int i = 1; i < count; i++) {
+            long nominal = relationsAt + (size - relationsAt) * i / count;
+            bounds[i] = nextLineStart(ch, Math.max(nominal, bounds[i - 1]), size);
+        }
+
+        AtomicLong done = new AtomicLong(relationsAt);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<Edges>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long from = bounds[i], to = bounds[i + 1];
+                futures.add(pool.submit(() -> parseRange(ch, from, to, names, done, size, progress)));
+            }
+            Edges[] parts = new Edges[count];
+            for (int i = 0; i < count; i++) {
+                parts[i] = futures.get(i).get();
+                if (parts[i] == null) return null;
+            }
+            return parts;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Primera posicion desde pos que empieza una linea (justo despues de un fin de linea)
+     */
+    private static long nextLineStart(FileChannel ch, long pos, long size) throws IOException {
+        if (pos <= 0) return 0;
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        long at = pos - 1;
+        while (at < size) {
+            buf.clear();
+            int got = ch.read(buf, at);
+            if (got <= 0) break;
+            byte[] b = buf.array();
+            for (int i = 0; i < got; i++) {
+                if (b[i] == '\n' || b[i] == '\r') return at + i + 1;
+            }
+            at += got;
+        }
+        return size;
+    }
+
+    /**
+     * Parsea las relaciones de [from, to), que empieza y termina en un inicio de linea
+     * La tabla de nombres solo se lee, asi que la comparten todos los hilos
+     *
+     * @return las relaciones del pedazo, o null si aparece un encabezado de seccion
+     */
+    private static Edges parseRange(FileChannel ch, long from, long to, ByteNameTable names,
+                                    AtomicLong done, long total, Progress progress) throws IOException {
+        Edges out = new Edges();
+        ByteBuffer buf = ByteBuffer.allocate(BLOCK_SIZE);
+        long pos = from;
+        while (true) {
+            if (!buf.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+            int want = (int) Math.min(buf.remaining(), to - pos);
+            boolean end = want == 0;
+            if (!end) {
+                buf.limit(buf.position() + want);
+                int got = ch.read(buf, pos);
+                buf.limit(buf.capacity());
+                if (got < 0) throw new IOException("File changed while loading.");
+                pos += got;
+                progress.worked(done.addAndGet(got), total);
+                progress.checkCancelled();
+            }
+            byte[] b = buf.array();
+            int limit = buf.position();
+            int start = 0;
+            for (int i = 0; i < limit; i++) {
+                byte c = b[i];
+                if (c == '\n' || c == '\r') {
+                    if (!relationLine(b, start, i, names, out)) return null;
+                    start = i + 1;
+                }
+            }
+            if (end) {
+                if (start < limit && !relationLine(b, start, limit, names, out)) return null;
+                return out;
+            }
+            System.arraycopy(b, start, b, 0, limit - start);
+            buf.position(limit - start);
+        }
+    }
+
+    /**
+     * Procesa una linea dentro de la seccion de relaciones
+     *
+     * @return false si la linea es un encabezado de seccion
+     */
+    private static boolean relationLine(byte[] b, int start, int end, ByteNameTable names, Edges out) {
+        while (start < end && (b[start] & 0xFF) <= ' ') start++;
+        while (end > start && (b[end - 1] & 0xFF) <= ' ') end--;
+        int len = end - start;
+        if (len == 0) return true;
+        if (isHeader(b, start, len)) return false;
+        out.relation(b, start, end, names);
+        return true;
+    }
+
+    private static boolean isHeader(byte[] b, int start, int len) {
+        return matches(b, start, len, USUARIOS) || matches(b, start, len, USERS)
+                || matches(b, start, len, RELACIONES) || matches(b, start, len, RELATIONS);
+    }
+
+    /**
+     * Procesa una linea b[start, end) sin el fin de linea
+     */
+    private void line(byte[] b, int start, int end) {
+        while (start < end && (b[start] & 0xFF) <= ' ') start++;
+        while (end > start && (b[end - 1] & 0xFF) <= ' ') end--;
+        int len = end - start;
+        if (len == 0) return;
+
+        if (matches(b, start, len, USUARIOS) || matches(b, start, len, USERS)) {
+            section = USER_SECTION;
+            return;
+        }
+        if (matches(b, start, len, RELACIONES) || matches(b, start, len, RELATIONS)) {
+            section = RELATION_SECTION;
+            return;
+        }
+
+        if (section == USER_SECTION) {
+            if (names.get(b, start, len) == -1) {
+                // el grafo compara Strings: bytes distintos de UTF-8 roto pueden
+                // decodificar a un user que ya esta, y tienen que dar su mismo indice
+                String name = new String(b, start, len, StandardCharsets.UTF_8);
+                int k = graph.indexOf(name);
+                if (k == -1) {
+                    names.add(b, start, len);
+                    graph.addUser(name);
+                } else {
+                    names.alias(b, start, len, k);
+                }
+            }
+        } else if (section == RELATION_SECTION) {
+            edges.relation(b, start, end, names);
+        }
+    }
+
+    /**
+     * Pasa todas las relaciones al grafo de una vez, en el orden de los pedazos
+     * y avisa cuantas no se pudieron resolver
+     */
+    private DirectedGraph finish(Edges[] parts, Progress progress) {
+        long t0 = Metrics.ENABLED ? Metrics.LOAD_BUILD.start() : 0;
+        int total = 0;
+        int unresolved = 0;
+        for (Edges e : parts) {
+            if (total + (long) e.count > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too many relations to load.");
+            }
+            total += e.count;
+            unresolved += e.unresolved;
+        }
+        int[] from, to;
+        if (parts.length == 1) {
+            from = parts[0].from;
+            to = parts[0].to;
+        } else {
+            from = new int[total];
+            to = new int[total];
+            int at = 0;
+            for (Edges e : parts) {
+                System.arraycopy(e.from, 0, from, at, e.count);
+                System.arraycopy(e.to, 0, to, at, e.count);
+                at += e.count;
+            }
+        }
+        graph.addRelations(from, to, total);
+        if (Metrics.ENABLED) Metrics.LOAD_BUILD.stop(t0);
+        if (unresolved > 0) progress.warn("Cannot add " + unresolved + " relation(s): user not found.");
+        return graph;
+    }
+
+    /**
+     * Relaciones ya resueltas a indices, de un pedazo del archivo o de todo
+     */
+    private static final class Edges {
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int count;
+        int unresolved;
+
+        /**
+         * Procesa "origen, destino" igual que split(",") con los dos primeros pedazos
+         */
+        void relation(byte[] b, int start, int end, ByteNameTable names) {
+            int comma = start;
+            while (comma < end && b[comma] != ',') comma++;
+            if (comma == end) return;
+
+            // split descarta los pedazos vacios del final: hace falta algo que no sea coma
+            int secondEnd = comma + 1;
+            while (secondEnd < end && b[secondEnd] != ',') secondEnd++;
+            boolean hasMore = false;
+            for (int i = comma + 1; i < end; i++) {
+                if (b[i] != ',') { hasMore = true; break; }
+            }
+            if (!hasMore) return;
+
+            int aStart = start, aEnd = comma;
+            while (aEnd > aStart && (b[aEnd - 1] & 0xFF) <= ' ') aEnd--;
+            int bStart = comma + 1, bEnd = secondEnd;
+            while (bStart < bEnd && (b[bStart] & 0xFF) <= ' ') bStart++;
+            while (bEnd > bStart && (b[bEnd - 1] & 0xFF) <= ' ') bEnd--;
+
+            int iFrom = names.get(b, aStart, aEnd - aStart);
+            int iTo = names.get(b, bStart, bEnd - bStart);
+            if (iFrom == -1 || iTo == -1) {
+                unresolved++;
+                return;
+            }
+            if (count == from.length) {
+                from = grow(from, count * 2);
+                to = grow(to, count * 2);
+            }
+            from[count] = iFrom;
+            to[count] = iTo;
+            count++;
+        }
+    }
+
+    /**
+     * Compara sin importar mayusculas contra una palabra ASCII en minusculas
+     */
+    private static boolean matches(byte[] b, int off, int len, byte[] word) {
+        if (len != word.length) return false;
+        for (int i = 0; i < len; i++) {
+            int c = b[off + i];
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != word[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] out = new byte[s.length()];
+        for (int i = 0; i < out.length; i++) out[i] = (byte) s.charAt(i);
+        return out;
+    }
+
+    private static int[] grow(int[] a, int len) {
+        int[] out = new int[len];
+        System.arraycopy(a, 0, out, 0, a.length);
+        return out;
+    }
+}
@@ -1,7 +1,11 @@
 package socialmedia.io;
 
+import socialmedia.metrics.Metrics;
 import socialmedia.model.DirectedGraph;
+import socialmedia.model.GraphView;
+import socialmedia.model.Progress;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Clase pa cargar y guardar los grafos de la social network desde archivos txt
@@ -12,45 +16,64 @@ import java.io.*;
  */
 public class FileSocialMedia {
 
+    // desde este tamaño los archivos de texto se parsean con todos los nucleos
+    private static final long PARALLEL_MIN_BYTES = 16L << 20;
+
     /**
      * Carga un grafo desde un file de texto
      * El file debe tener partes: "usuarios" y "relaciones"
      * Si no encuentra el file, tira exception
+     * Usa FastGraphLoader, que parsea los bytes sin crear Strings por linea
+     * Si el file esta en el formato binario (BinaryGraphFormat) lo detecta solo
+     * Si al lado hay una bitacora de GraphJournal ("file.log") tambien se
+     * aplican los cambios guardados de ahi: el file solo no esta completo
+     * sin su bitacora. Los cambios que no se guardaron no se aplican
      * 
      * @param f el file a cargar
      * @return el grafo con todos los users y sus connections
      * @throws IOException si hay error leyendo el file o formato wrong
      */
     public static DirectedGraph loadFromFile(File f) throws IOException {
-        DirectedGraph g = new DirectedGraph();
-        BufferedReader br = null;
-        try {
-            br = new BufferedReader(new FileReader(f));
-            String line;
-            boolean readUsers = false;
-            boolean readRelations = false;
-
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.length() == 0) continue;
+        return loadFromFile(f, Progress.NONE);
+    }
 
-                if (line.equalsIgnoreCase("usuarios") || line.equalsIgnoreCase("users")) {
-                    readUsers = true; readRelations = false; continue;
-                }
-                if (line.equalsIgnoreCase("relaciones") || line.equalsIgnoreCase("relations")) {
-                    readUsers = false; readRelations = true; continue;
-                }
+    /**
+     * Carga un grafo igual que loadFromFile, avisando cuantos bytes lleva
+     * Pensado pa cargar en segundo plano con una barra de progreso
+     * Los archivos de texto grandes se parsean en paralelo, con un hilo por nucleo
+     * 
+     * @param f el file a cargar
+     * @param progress a quien avisarle el avance y si hay que cancelar
+     * @return el grafo con todos los users y sus connections
+     * @throws IOException si hay error leyendo el file o formato wrong
+     * @throws java.util.concurrent.CancellationException si se cancelo la carga
+     */
+    public static DirectedGraph loadFromFile(File f, Progress progress) throws IOException {
+        DirectedGraph g = loadBase(f, progress);
+        GraphJournal.replaySaved(g, f);
+        return g;
+    }
 
-                if (readUsers) g.addUser(line);
-                else if (readRelations) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 2) {
-                        g.addRelation(parts[0].trim(), parts[1].trim());
-                    }
-                }
-            }
-        } finally {
-            if (br != null) br.close();
+    /**
+     * Carga solo el file, sin mirar la bitacora (GraphJournal la repite aparte)
+     *
+     * @param f el file a cargar
+     * @param progress a quien avisarle el avance y si hay que cancelar
+     * @return el grafo tal como esta en el file
+     * @throws IOException si hay error leyendo el file o formato wrong
+     */
+    static DirectedGraph loadBase(File f, Progress progress) throws IOException {
+        long t0 = Metrics.ENABLED ? Metrics.LOAD.start() : 0;
+        DirectedGraph g;
+        if (BinaryGraphFormat.isBinary(f)) {
+            g = BinaryGraphFormat.load(f, progress);
+        } else {
+            int threads = f.length() >= PARALLEL_MIN_BYTES ? Runtime.getRuntime().availableProcessors() : 1;
+            g = FastGraphLoader.load(f, threads, progress);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.LOAD_BYTES.add(f.length());
+            Metrics.LOAD.stop(t0);
         }
         return g;
     }
@@ -58,15 +81,25 @@ public class FileSocialMedia {
     /**
      * Guarda el grafo en un file de texto con el formato correcto
      * Primero escribe todos los users, luego las relaciones
+     * Si el nombre del file termina en .smgb se guarda en formato binario
+     * Sirve pa cualquier GraphView, no solo pa DirectedGraph
+     * Los nombres se escriben en UTF-8, igual que los lee FastGraphLoader,
+     * sin importar el charset de la plataforma
+     * Escribe el file tal cual: si al lado queda una bitacora vieja ya no le
+     * corresponde (lleva el CRC del checkpoint anterior) y al cargar se ignora
      * 
      * @param g el grafo a guardar
      * @param f el file destino donde guardar
      * @throws IOException si hay error escribiendo el file
      */
-    public static void saveToFile(DirectedGraph g, File f) throws IOException {
+    public static void saveToFile(GraphView g, File f) throws IOException {
+        if (f.getName().toLowerCase().endsWith(BinaryGraphFormat.EXTENSION)) {
+            BinaryGraphFormat.save(g, f);
+            return;
+        }
         BufferedWriter bw = null;
         try {
-            bw = new BufferedWriter(new FileWriter(f));
+            bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8));
             bw.write("usuarios"); bw.newLine();
             int n = g.getVertexCount();
             for (int i = 0; i < n; i++) {
@@ -74,10 +107,12 @@ public class FileSocialMedia {
                 bw.newLine();
             }
             bw.newLine(); bw.write("relaciones"); bw.newLine();
+            int[] nb = new int[16];
             for (int v = 0; v < n; v++) {
                 String from = g.getUserByIndex(v);
                 int cnt = g.getNeighborsCount(v);
-                int[] nb = g.getNeighborsBuffer(v);
+                if (nb.length < cnt) nb = new int[Math.max(cnt, nb.length * 2)];
+                g.copyNeighbors(v, nb, 0);
                 for (int i = 0; i < cnt; i++) {
                     bw.write(from + ", " + g.getUserByIndex(nb[i]));
                     bw.newLine();
@@ -0,0 +1,543 @@
+package socialmedia.io;
+
+import socialmedia.model.DirectedGraph;
+import socialmedia.model.GraphListener;
+import socialmedia.model.Progress;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Bitacora de cambios (write-ahead log) pa un grafo guardado en archivo
+ *
+ * El archivo del grafo es el checkpoint y al lado vive "archivo.log", donde se
+ * agrega un registro por cada cambio (agregar o quitar user o relacion) apenas
+ * pasa. Guardar ya no reescribe todo el grafo: basta con bajar la bitacora a
+ * disco (sync), que cuesta lo que cuesten los cambios. Cada tanto se hace un
+ * checkpoint: el grafo completo se escribe a un temporal, se cambia por el
+ * archivo de forma atomica y la bitacora vuelve a quedar vacia
+ *
+ * Guardar (sync) escribe una marca SAVE: lo que esta antes de la ultima marca
+ * es lo guardado, lo que viene despues son cambios sin guardar. Si el usuario
+ * decide no guardar, discard corta la bitacora en la ultima marca
+ *
+ * Al abrir se carga el checkpoint y se repiten todos los registros de la
+ * bitacora, incluso los sin guardar (si el programa se cayo, no se pierden;
+ * getUnsaved dice cuantos son). Cada registro lleva su CRC; si el programa
+ * murio a mitad de uno, ese pedazo se descarta y se corta la bitacora ahi
+ *
+ * Los registros usan nombres y no indices, asi no dependen de como se
+ * reacomodan los indices al borrar users
+ *
+ * El encabezado lleva el largo y el CRC32 del checkpoint al que pertenece la
+ * bitacora. Si el archivo del grafo cambio por otro lado (saveToFile, a mano,
+ * o se cayo justo despues de cambiar el checkpoint y antes de vaciar la
+ * bitacora) la bitacora ya no es suya: se ignora al cargar y se vacia al abrir
+ *
+ * Formato (little-endian): "SMGL", int version, long largo y int crc32 del
+ * checkpoint, y despues registros [byte tipo][int largo][datos][int crc32 de
+ * tipo + datos], donde los datos son uno o dos nombres como [int largo][bytes
+ * UTF-8] (la marca SAVE no lleva datos)
+ *
+ * @version 1.0
+ */
+public class GraphJournal implements GraphListener, Closeable {
+
+    /** Extension que se agrega al archivo del grafo pa la bitacora */
+    public static final String LOG_EXTENSION = ".log";
+
+    /** Cuantos registros se juntan antes de que sync haga un checkpoint solo */
+    public static final int CHECKPOINT_RECORDS = 50_000;
+
+    static final int MAGIC = 0x4C474D53; // "SMGL" leido en little-endian
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 20;
+
+    private static final byte ADD_USER = 1;
+    private static final byte REMOVE_USER = 2;
+    private static final byte ADD_RELATION = 3;
+    private static final byte REMOVE_RELATION = 4;
+    private static final byte SAVE = 5;
+
+    private final File base;
+    private final File logFile;
+    private final DirectedGraph graph;
+    private FileChannel log;
+    private ByteBuffer buf = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+    private int replayed;
+    private int unsaved;
+    private long pending;
+    private boolean dirty; // hay registros sin bajar a disco
+    private long savedAt = HEADER_BYTES; // fin de la ultima marca SAVE en la bitacora
+    private long savedPending;           // pending en ese momento
+    private Stamp stamp;                 // el checkpoint que corresponde a esta bitacora
+
+    private GraphJournal(File base, DirectedGraph graph) {
+        this.base = base;
+        this.logFile = logFileFor(base);
+        this.graph = graph;
+    }
+
+    /**
+     * Archivo de bitacora que corresponde a un archivo de grafo
+     *
+     * @param base el archivo del grafo
+     * @return el archivo de bitacora al lado
+     */
+    public static File logFileFor(File base) {
+        return new File(base.getPath() + LOG_EXTENSION);
+    }
+
+    /**
+     * Abre un grafo con su bitacora: carga el checkpoint y repite los cambios
+     *
+     * @param base el archivo del grafo (si no existe se empieza vacio)
+     * @return la bitacora, ya enganchada al grafo
+     * @throws IOException si hay error leyendo o escribiendo
+     */
+    public static GraphJournal open(File base) throws IOException {
+        return open(base, Progress.NONE);
+    }
+
+    /**
+     * Abre un grafo con su bitacora reportando el avance de la carga
+     *
+     * @param base el archivo del grafo (si no existe se empieza vacio)
+     * @param progress a quien avisarle el avance
+     * @return la bitacora, ya enganchada al grafo
+     * @throws IOException si hay error leyendo o escribiendo
+     * @throws java.util.concurrent.CancellationException si se cancelo
+     */
+    public static GraphJournal open(File base, Progress progress) throws IOException {
+        DirectedGraph g = base.exists() ? FileSocialMedia.loadBase(base, progress) : new DirectedGraph();
+        progress.checkCancelled();
+        GraphJournal j = new GraphJournal(base, g);
+        j.stamp = Stamp.of(base);
+        j.openLog();
+        g.addListener(j);
+        return j;
+    }
+
+    /**
+     * Aplica sobre un grafo recien cargado de base los cambios guardados de su
+     * bitacora (hasta la ultima marca SAVE), sin escribir nada
+     * Es lo que usa FileSocialMedia.loadFromFile pa que quien lea el archivo
+     * sin la interfaz vea lo mismo que se guardo
+     * Si la bitacora es de otro checkpoint (el archivo cambio despues) no se aplica
+     *
+     * @param g el grafo cargado de base
+     * @param base el archivo del grafo
+     * @return cuantos cambios se aplicaron (0 si no hay bitacora o no es de este archivo)
+     * @throws IOException si hay error leyendo o la bitacora no es valida
+     */
+    public static int replaySaved(DirectedGraph g, File base) throws IOException {
+        File logFile = logFileFor(base);
+        if (!logFile.exists() || logFile.length() < HEADER_BYTES) return 0;
+        try (FileChannel ch = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer data = readLog(ch, logFile);
+            if (!Stamp.of(base).matches(data)) return 0;
+            return apply(g, data, scan(data).saved);
+        }
+    }
+
+    /**
+     * Empieza una bitacora nueva pa un grafo que ya esta en memoria
+     * Escribe el grafo completo como checkpoint en base
+     *
+     * @param g el grafo
+     * @param base donde guardar el checkpoint
+     * @return la bitacora, ya enganchada al grafo
+     * @throws IOException si hay error escribiendo
+     */
+    public static GraphJournal create(DirectedGraph g, File base) throws IOException {
+        GraphJournal j = new GraphJournal(base, g);
+        j.writeCheckpoint();
+        Files.deleteIfExists(j.logFile.toPath()); // lo de antes ya esta en el checkpoint
+        g.addListener(j);
+        return j;
+    }
+
+    /**
+     * Abre la bitacora, repite los registros sanos y corta lo que sobre
+     * Si no hay bitacora no se crea todavia, recien con el primer cambio;
+     * si es de otro checkpoint se vacia sin repetir nada
+     */
+    private void openLog() throws IOException {
+        if (!logFile.exists()) return;
+        log = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = log.size();
+        if (size < HEADER_BYTES) {
+            resetLog();
+            return;
+        }
+        ByteBuffer data = readLog(log, logFile);
+        if (!stamp.matches(data)) {
+            resetLog();
+            return;
+        }
+        Scan scan = scan(data);
+        replayed = apply(graph, data, scan.good);
+        unsaved = scan.records - scan.savedRecords;
+        pending = replayed;
+        savedAt = scan.saved;
+        savedPending = scan.savedRecords;
+        if (scan.good < size) log.truncate(scan.good); // registro cortado por una caida
+        log.position(scan.good);
+    }
+
+    /**
+     * Lee la bitacora entera y revisa el encabezado
+     */
+    private static ByteBuffer readLog(FileChannel ch, File logFile) throws IOException {
+        long size = ch.size();
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE)).order(ByteOrder.LITTLE_ENDIAN);
+        while (data.hasRemaining() && ch.read(data, data.position()) > 0) { }
+        data.flip();
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) throw new IOException("Not a graph log: " + logFile.getName());
+        if (data.getInt(4) != VERSION) throw new IOException("Unsupported graph log version: " + data.getInt(4));
+        return data;
+    }
+
+    /**
+     * Largo y CRC32 de un checkpoint, pa saber si una bitacora le corresponde
+     */
+    private static final class Stamp {
+        final long length;
+        final int crc;
+
+        private Stamp(long length, int crc) {
+            this.length = length;
+            this.crc = crc;
+        }
+
+        /**
+         * Lee el archivo entero; si no existe el largo queda en -1
+         */
+        static Stamp of(File f) throws IOException {
+            if (!f.exists()) return new Stamp(-1, 0);
+            CRC32 crc = new CRC32();
+            ByteBuffer block = ByteBuffer.allocateDirect(1 << 16);
+            try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                long length = ch.size();
+                while (ch.read(block) > 0) {
+                    block.flip();
+                    crc.update(block);
+                    block.clear();
+                }
+                return new Stamp(length, (int) crc.getValue());
+            }
+        }
+
+        /**
+         * Dice si el encabezado de una bitacora es de este checkpoint
+         */
+        boolean matches(ByteBuffer log) {
+            return log.getLong(8) == length && log.getInt(16) == crc;
+        }
+    }
+
+    /** Hasta donde llegan los registros sanos y donde quedo la ultima marca SAVE */
+    private static final class Scan {
+        long good = HEADER_BYTES;
+        long saved = HEADER_BYTES;
+        int records;      // cambios sanos (sin contar marcas)
+        int savedRecords; // cambios antes de la ultima marca
+    }
+
+    /**
+     * Recorre los registros revisando el CRC y el tipo, sin aplicar nada
+     */
+    private static Scan scan(ByteBuffer data) {
+        Scan scan = new Scan();
+        CRC32 crc = new CRC32();
+        int pos = HEADER_BYTES;
+        while (data.limit() - pos >= 9) {
+            byte type = data.get(pos);
+            int len = data.getInt(pos + 1);
+            if (len < 0 || data.limit() - pos - 9 < len) break;
+            if (type < ADD_USER || type > SAVE) break;
+            crc.reset();
+            crc.update(data.array(), pos, 1);
+            crc.update(data.array(), pos + 5, len);
+            if ((int) crc.getValue() != data.getInt(pos + 5 + len)) break;
+            pos += 9 + len;
+            scan.good = pos;
+            if (type == SAVE) {
+                scan.saved = pos;
+                scan.savedRecords = scan.records;
+            } else {
+                scan.records++;
+            }
+        }
+        return scan;
+    }
+
+    /**
+     * Repite sobre el grafo los registros hasta la posicion limit
+     * (los registros ya se revisaron con scan)
+     *
+     * @return cuantos cambios se aplicaron
+     */
+    private static int apply(DirectedGraph g, ByteBuffer data, long limit) {
+        int applied = 0;
+        int pos = HEADER_BYTES;
+        while (pos < limit) {
+            byte type = data.get(pos);
+            int len = data.getInt(pos + 1);
+            data.position(pos + 5);
+            if (type != SAVE) {
+                apply(g, type, data);
+                applied++;
+            }
+            pos += 9 + len;
+        }
+        return applied;
+    }
+
+    /**
+     * Repite un registro sobre el grafo
+     */
+    private static void apply(DirectedGraph graph, byte type, ByteBuffer data) {
+        switch (type) {
+            case ADD_USER:
+                graph.addUser(readName(data));
+                break;
+            case REMOVE_USER:
+                graph.removeUser(readName(data));
+                break;
+            case ADD_RELATION: {
+                int from = graph.indexOf(readName(data));
+                int to = graph.indexOf(readName(data));
+                if (from != -1 && to != -1) graph.addRelation(from, to);
+                break;
+            }
+            case REMOVE_RELATION: {
+                String from = readName(data);
+                graph.removeRelation(from, readName(data));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown log record: " + type);
+        }
+    }
+
+    private static String readName(ByteBuffer data) {
+        int len = data.getInt();
+        String s = new String(data.array(), data.position(), len, StandardCharsets.UTF_8);
+        data.position(data.position() + len);
+        return s;
+    }
+
+    /**
+     * El grafo que se esta siguiendo
+     *
+     * @return el grafo
+     */
+    public DirectedGraph getGraph() { return graph; }
+
+    /**
+     * El archivo del checkpoint
+     *
+     * @return el archivo del grafo
+     */
+    public File getBaseFile() { return base; }
+
+    /**
+     * Cuantos registros se repitieron al abrir
+     *
+     * @return los cambios recuperados de la bitacora
+     */
+    public int getReplayed() { return replayed; }
+
+    /**
+     * Cuantos de los registros repetidos al abrir no se habian guardado
+     * (quedaron despues de la ultima marca SAVE, por ejemplo si se cayo el programa)
+     *
+     * @return los cambios sin guardar que se recuperaron
+     */
+    public int getUnsaved() { return unsaved; }
+
+    /**
+     * Dice si hay cambios despues del ultimo guardado
+     *
+     * @return true si discard tiraria algo
+     */
+    public boolean hasUnsavedChanges() {
+        try {
+            return log != null && log.position() > savedAt;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Cuantos registros hay desde el ultimo checkpoint
+     *
+     * @return el tamaño de la bitacora en registros
+     */
+    public long getPendingRecords() { return pending; }
+
+    /**
+     * Guarda: marca todos los cambios como guardados y baja la bitacora a disco;
+     * si ya es muy larga hace un checkpoint
+     * Despues de esto los cambios sobreviven aunque se caiga la maquina y
+     * FileSocialMedia.loadFromFile ya los ve
+     *
+     * @throws IOException si hay error escribiendo
+     */
+    public void sync() throws IOException {
+        if (pending >= CHECKPOINT_RECORDS) {
+            checkpoint();
+            return;
+        }
+        if (!hasUnsavedChanges()) return;
+        append(SAVE, null, null);
+        log.force(false);
+        dirty = false;
+        savedAt = log.position();
+        savedPending = pending;
+    }
+
+    /**
+     * Tira los cambios sin guardar: corta la bitacora en la ultima marca SAVE
+     * El grafo en memoria no se toca; se usa antes de cerrar o abrir otro archivo
+     *
+     * @throws IOException si hay error escribiendo
+     */
+    public void discard() throws IOException {
+        if (log == null) return;
+        log.truncate(savedAt);
+        log.position(savedAt);
+        log.force(false);
+        pending = savedPending;
+        dirty = false;
+    }
+
+    /**
+     * Crea la bitacora vacia la primera vez que hace falta
+     */
+    private FileChannel channel() throws IOException {
+        if (log == null) {
+            log = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            resetLog();
+        }
+        return log;
+    }
+
+    /**
+     * Escribe el grafo completo como checkpoint y deja la bitacora vacia
+     *
+     * @throws IOException si hay error escribiendo
+     */
+    public void checkpoint() throws IOException {
+        writeCheckpoint();
+        if (log != null) resetLog();
+    }
+
+    /**
+     * Escribe el grafo a un temporal y lo cambia por el checkpoint de una vez
+     */
+    private void writeCheckpoint() throws IOException {
+        // el temporal no tiene la extension del base, asi que el formato se elige aca
+        File tmp = new File(base.getPath() + ".tmp");
+        if (base.getName().toLowerCase().endsWith(BinaryGraphFormat.EXTENSION)) {
+            BinaryGraphFormat.save(graph, tmp);
+        } else {
+            FileSocialMedia.saveToFile(graph, tmp);
+        }
+        try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        stamp = Stamp.of(tmp);
+        Files.move(tmp.toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void resetLog() throws IOException {
+        log.truncate(0);
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(VERSION).putLong(stamp.length).putInt(stamp.crc).flip();
+        log.write(head, 0);
+        log.position(HEADER_BYTES);
+        log.force(false);
+        pending = 0;
+        dirty = false;
+        savedAt = HEADER_BYTES;
+        savedPending = 0;
+    }
+
+    /**
+     * Deja de seguir el grafo y cierra la bitacora (bajandola a disco)
+     *
+     * @throws IOException si hay error escribiendo
+     */
+    @Override
+    public void close() throws IOException {
+        graph.removeListener(this);
+        if (log != null && log.isOpen()) {
+            if (dirty) log.force(false);
+            log.close();
+        }
+    }
+
+    @Override
+    public void userAdded(int v) {
+        append(ADD_USER, graph.getUserByIndex(v), null);
+    }
+
+    @Override
+    public void relationAdded(int from, int to) {
+        append(ADD_RELATION, graph.getUserByIndex(from), graph.getUserByIndex(to));
+    }
+
+    @Override
+    public void relationRemoved(int from, int to) {
+        append(REMOVE_RELATION, graph.getUserByIndex(from), graph.getUserByIndex(to));
+    }
+
+    @Override
+    public void userRemoved(String name, int index, int movedFrom) {
+        append(REMOVE_USER, name, null);
+    }
+
+    /**
+     * Escribe un registro al final de la bitacora
+     * Queda en el sistema operativo: sobrevive si se cae el programa,
+     * y con sync tambien si se cae la maquina
+     */
+    private void append(byte type, String a, String b) {
+        byte[] ba = a == null ? null : a.getBytes(StandardCharsets.UTF_8);
+        byte[] bb = b == null ? null : b.getBytes(StandardCharsets.UTF_8);
+        int len = (ba == null ? 0 : 4 + ba.length) + (bb == null ? 0 : 4 + bb.length);
+        if (buf.capacity() < len + 9) {
+            buf = ByteBuffer.allocate(Math.max(len + 9, buf.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buf.clear();
+        buf.put(type).putInt(len);
+        if (ba != null) buf.putInt(ba.length).put(ba);
+        if (bb != null) buf.putInt(bb.length).put(bb);
+        crc.reset();
+        crc.update(buf.array(), 0, 1);
+        crc.update(buf.array(), 5, len);
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+        try {
+            FileChannel ch = channel();
+            while (buf.hasRemaining()) ch.write(buf);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write graph log: " + logFile.getName(), e);
+        }
+        if (type != SAVE) pending++;
+        dirty = true;
+    }
+}
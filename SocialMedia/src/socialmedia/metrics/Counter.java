@@ -0,0 +1,51 @@
+package socialmedia.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador que solo sube, seguro entre hilos
+ * Si las metricas estan apagadas no hace nada
+ *
+ * @version 1.0
+ */
+public final class Counter extends Metric {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        super(name);
+    }
+
+    /**
+     * Suma uno
+     */
+    public void increment() {
+        if (Metrics.ENABLED) value.increment();
+    }
+
+    /**
+     * Suma n
+     *
+     * @param n cuanto sumar
+     */
+    public void add(long n) {
+        if (Metrics.ENABLED) value.add(n);
+    }
+
+    /**
+     * Cuanto lleva
+     *
+     * @return el valor actual
+     */
+    public long get() { return value.sum(); }
+
+    @Override
+    void report(StringBuilder sb) { sb.append(get()); }
+
+    @Override
+    void values(Map<String, Long> out) { out.put(getName(), get()); }
+
+    @Override
+    void reset() { value.reset(); }
+}
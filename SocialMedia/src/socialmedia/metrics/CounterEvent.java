@@ -0,0 +1,30 @@
+package socialmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento periodico de JFR con el valor de cada contador
+ * JFR lo pide cada tanto (por defecto cada 10 s) mientras graba
+ *
+ * @version 1.0
+ */
+@Name("socialmedia.Counter")
+@Label("Graph Counter")
+@Category("Social Media")
+@Description("Current value of a graph metrics counter")
+@Period("10 s")
+@StackTrace(false)
+class CounterEvent extends Event {
+
+    @Label("Counter")
+    String counter;
+
+    @Label("Value")
+    long value;
+}
@@ -0,0 +1,119 @@
+package socialmedia.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de valores no negativos en cubetas de potencias de 2
+ * La cubeta i junta los valores de 2^(i-1) a 2^i - 1 (la 0 es solo el 0),
+ * asi que los percentiles salen como cota de arriba, con error de a lo sumo 2x
+ *
+ * Grabar un valor no crea objetos: son unos pocos incrementos atomicos
+ *
+ * @version 1.0
+ */
+public final class Histogram extends Metric {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name) {
+        super(name);
+    }
+
+    /**
+     * Graba un valor; los negativos cuentan como 0
+     * Si las metricas estan apagadas no hace nada
+     *
+     * @param value el valor
+     */
+    public void record(long value) {
+        if (!Metrics.ENABLED) return;
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while ((m = max.get()) < value && !max.compareAndSet(m, value)) { }
+    }
+
+    /**
+     * Cuantos valores se grabaron
+     *
+     * @return el numero de valores
+     */
+    public long getCount() { return count.get(); }
+
+    /**
+     * La suma de todos los valores
+     *
+     * @return la suma
+     */
+    public long getSum() { return sum.get(); }
+
+    /**
+     * El valor mas grande que se grabo
+     *
+     * @return el maximo, 0 si no hay valores
+     */
+    public long getMax() { return max.get(); }
+
+    /**
+     * El promedio de los valores
+     *
+     * @return el promedio, 0 si no hay valores
+     */
+    public double getMean() {
+        long c = count.get();
+        return c == 0 ? 0 : (double) sum.get() / c;
+    }
+
+    /**
+     * Cota de arriba del percentil pedido
+     *
+     * @param p el percentil, entre 0 y 1
+     * @return el mayor valor de la cubeta donde cae el percentil
+     */
+    public long getPercentile(double p) {
+        long c = count.get();
+        if (c == 0) return 0;
+        long want = Math.max(1, (long) Math.ceil(p * c));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= want) return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get());
+        }
+        return max.get();
+    }
+
+    @Override
+    void report(StringBuilder sb) {
+        sb.append("count=").append(getCount())
+          .append(" mean=").append(String.format("%.1f", getMean()))
+          .append(" p50<=").append(getPercentile(0.5))
+          .append(" p99<=").append(getPercentile(0.99))
+          .append(" max=").append(getMax());
+    }
+
+    @Override
+    void values(Map<String, Long> out) {
+        out.put(getName() + ".count", getCount());
+        out.put(getName() + ".sum", getSum());
+        out.put(getName() + ".p50", getPercentile(0.5));
+        out.put(getName() + ".p99", getPercentile(0.99));
+        out.put(getName() + ".max", getMax());
+    }
+
+    @Override
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,40 @@
+package socialmedia.metrics;
+
+import java.util.Map;
+
+/**
+ * Una medida con nombre: contador, histograma o tiempo de una fase
+ * Solo se crean desde Metrics, que las junta pa el reporte y el MBean
+ *
+ * @version 1.0
+ */
+public abstract class Metric {
+
+    private final String name;
+
+    Metric(String name) {
+        this.name = name;
+    }
+
+    /**
+     * El nombre con que sale en el reporte, en JMX y en JFR
+     *
+     * @return el nombre
+     */
+    public String getName() { return name; }
+
+    /**
+     * Escribe una linea con el estado actual (sin el nombre)
+     */
+    abstract void report(StringBuilder sb);
+
+    /**
+     * Pone los valores sueltos en el mapa, con el nombre como prefijo
+     */
+    abstract void values(Map<String, Long> out);
+
+    /**
+     * Vuelve a cero
+     */
+    abstract void reset();
+}
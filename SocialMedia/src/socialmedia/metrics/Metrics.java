@@ -0,0 +1,188 @@
+package socialmedia.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Metricas de las partes calientes: carga de archivos, altas de relaciones
+ * en DirectedGraph y las pasadas de Kosaraju
+ *
+ * Se prenden con -Dsocialmedia.metrics=true. ENABLED es static final, asi
+ * que con las metricas apagadas el JIT borra los if (Metrics.ENABLED) y el
+ * codigo medido queda igual que sin metricas, sin crear ningun objeto
+ *
+ * Prendidas, se ven de tres formas:
+ * - report(): texto, pa el log de la ventana y el stderr del modo batch
+ * - JMX: el MBean socialmedia:type=Metrics
+ * - JFR: eventos socialmedia.Phase por cada fase y socialmedia.Counter periodicos
+ *
+ * @version 1.0
+ */
+public final class Metrics {
+
+    /** Si se mide algo; se lee una sola vez al cargar la clase */
+    public static final boolean ENABLED = Boolean.getBoolean("socialmedia.metrics");
+
+    /** Nombre del MBean */
+    public static final String OBJECT_NAME = "socialmedia:type=Metrics";
+
+    // tiene que ir antes de las metricas, que se anotan aca al crearse
+    private static final List<Metric> ALL = new ArrayList<>();
+
+    /** Carga completa de un archivo (texto o binario) */
+    public static final PhaseTimer LOAD = timer("load");
+    /** Bytes de archivos cargados */
+    public static final Counter LOAD_BYTES = counter("load.bytes");
+    /** Lectura y parseo del texto hasta tener las relaciones en indices */
+    public static final PhaseTimer LOAD_PARSE = timer("load.parse");
+    /** Paso de las relaciones parseadas al DirectedGraph */
+    public static final PhaseTimer LOAD_BUILD = timer("load.build");
+
+    /** Relaciones nuevas en un DirectedGraph */
+    public static final Counter RELATIONS_ADDED = counter("graph.relations.added");
+    /** Relaciones que ya estaban y se descartaron */
+    public static final Counter RELATIONS_DUPLICATE = counter("graph.relations.duplicate");
+    /** Cuantos vecinos se recorren buscando una relacion en filas sin indice */
+    public static final Histogram DUPLICATE_SCAN = histogram("graph.duplicateScan");
+    /** Busquedas de relaciones resueltas con el indice de una fila grande */
+    public static final Counter INDEXED_LOOKUPS = counter("graph.indexedLookups");
+    /** Indices de filas grandes armados desde cero */
+    public static final Counter ROW_INDEX_BUILDS = counter("graph.rowIndexBuilds");
+    /** Veces que una fila de vecinos crecio */
+    public static final Counter ROW_RESIZES = counter("graph.rowResizes");
+    /** Ints copiados al hacer crecer filas */
+    public static final Counter ROW_RESIZE_COPIED = counter("graph.rowResizes.copiedInts");
+    /** Altas de relaciones por lote (addRelations con radix sort) */
+    public static final PhaseTimer BULK_ADD = timer("graph.bulkAdd");
+
+    /** Armado del reverso de la foto CSR */
+    public static final PhaseTimer KOSARAJU_REVERSE = timer("kosaraju.reverse");
+    /** Primer DFS (post orden) */
+    public static final PhaseTimer KOSARAJU_PASS1 = timer("kosaraju.pass1");
+    /** Segundo DFS sobre el transpuesto */
+    public static final PhaseTimer KOSARAJU_PASS2 = timer("kosaraju.pass2");
+    /** Profundidad maxima de la pila del DFS en cada corrida */
+    public static final Histogram KOSARAJU_DEPTH = histogram("kosaraju.maxDepth");
+
+    static {
+        if (ENABLED) {
+            registerMBean();
+            FlightRecorder.addPeriodicEvent(CounterEvent.class, Metrics::emitCounters);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static Counter counter(String name) {
+        Counter c = new Counter(name);
+        ALL.add(c);
+        return c;
+    }
+
+    private static Histogram histogram(String name) {
+        Histogram h = new Histogram(name);
+        ALL.add(h);
+        return h;
+    }
+
+    private static PhaseTimer timer(String name) {
+        PhaseTimer t = new PhaseTimer(name);
+        ALL.add(t);
+        return t;
+    }
+
+    /**
+     * Todas las metricas, en el orden del reporte
+     *
+     * @return la lista (no se puede modificar)
+     */
+    public static List<Metric> all() {
+        return Collections.unmodifiableList(ALL);
+    }
+
+    /**
+     * Arma el reporte de texto: una linea por metrica
+     *
+     * @return el reporte, o un aviso si las metricas estan apagadas
+     */
+    public static String report() {
+        if (!ENABLED) return "Metrics are disabled (run with -Dsocialmedia.metrics=true).\n";
+        StringBuilder sb = new StringBuilder();
+        for (Metric m : ALL) {
+            String name = m.getName();
+            sb.append(name);
+            for (int i = name.length(); i < 28; i++) sb.append(' ');
+            m.report(sb);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Todos los valores sueltos por nombre, en el orden del reporte
+     *
+     * @return los valores
+     */
+    public static Map<String, Long> values() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Metric m : ALL) m.values(out);
+        return out;
+    }
+
+    /**
+     * Vuelve todas las metricas a cero
+     */
+    public static void reset() {
+        for (Metric m : ALL) m.reset();
+    }
+
+    /**
+     * Registra el MBean en el servidor de la plataforma
+     * Se hace solo al cargar la clase si las metricas estan prendidas
+     *
+     * @throws IllegalStateException si JMX no lo acepta
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ex) {
+            // ya estaba
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, ex);
+        }
+    }
+
+    private static void emitCounters() {
+        for (Metric m : ALL) {
+            if (!(m instanceof Counter)) continue;
+            CounterEvent e = new CounterEvent();
+            e.counter = m.getName();
+            e.value = ((Counter) m).get();
+            e.commit();
+        }
+    }
+
+    /** El MBean solo pasa a los metodos estaticos */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() { return ENABLED; }
+
+        @Override
+        public Map<String, Long> getValues() { return values(); }
+
+        @Override
+        public String getReport() { return report(); }
+
+        @Override
+        public void reset() { Metrics.reset(); }
+    }
+}
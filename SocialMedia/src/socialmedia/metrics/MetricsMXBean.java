@@ -0,0 +1,38 @@
+package socialmedia.metrics;
+
+import java.util.Map;
+
+/**
+ * Lo que se ve de las metricas por JMX (jconsole, VisualVM...)
+ * Se registra como socialmedia:type=Metrics
+ *
+ * @version 1.0
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Si las metricas estan prendidas (-Dsocialmedia.metrics=true)
+     *
+     * @return true si se esta midiendo
+     */
+    boolean isEnabled();
+
+    /**
+     * Todos los valores sueltos por nombre
+     *
+     * @return los valores
+     */
+    Map<String, Long> getValues();
+
+    /**
+     * El mismo reporte de texto que Metrics.report
+     *
+     * @return el reporte
+     */
+    String getReport();
+
+    /**
+     * Vuelve todas las metricas a cero
+     */
+    void reset();
+}
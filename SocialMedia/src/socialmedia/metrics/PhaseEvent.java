@@ -0,0 +1,30 @@
+package socialmedia.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de JFR con lo que tardo una fase
+ * Se graba al terminar la fase, con la duracion en elapsed
+ *
+ * @version 1.0
+ */
+@Name("socialmedia.Phase")
+@Label("Graph Phase")
+@Category("Social Media")
+@Description("Time spent in one phase of loading or analysing a graph")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
@@ -0,0 +1,84 @@
+package socialmedia.metrics;
+
+import java.util.Map;
+
+/**
+ * Mide cuanto tarda una fase (cargar, parsear, una pasada del DFS...)
+ * Cada medicion va a un histograma en nanosegundos y, si hay una grabacion
+ * de JFR con el evento prendido, sale tambien como evento socialmedia.Phase
+ *
+ * Se usa asi, sin crear objetos; igual que el resto de las metricas, cada
+ * llamada va detras de Metrics.ENABLED (start y stop tambien lo revisan,
+ * pero asi apagadas no queda ni la llamada):
+ * <pre>
+ * long t = Metrics.ENABLED ? Metrics.LOAD.start() : 0;
+ * ...
+ * if (Metrics.ENABLED) Metrics.LOAD.stop(t);
+ * </pre>
+ *
+ * @version 1.0
+ */
+public final class PhaseTimer extends Metric {
+
+    private final Histogram nanos;
+
+    PhaseTimer(String name) {
+        super(name);
+        nanos = new Histogram(name);
+    }
+
+    /**
+     * Marca el inicio de la fase
+     *
+     * @return la marca pa pasarle a stop, 0 si las metricas estan apagadas
+     */
+    public long start() {
+        return Metrics.ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Marca el final de la fase y graba cuanto tardo
+     *
+     * @param start lo que devolvio start
+     */
+    public void stop(long start) {
+        if (!Metrics.ENABLED) return;
+        long elapsed = System.nanoTime() - start;
+        nanos.record(elapsed);
+        PhaseEvent e = new PhaseEvent();
+        if (e.shouldCommit()) {
+            e.phase = getName();
+            e.elapsed = elapsed;
+            e.commit();
+        }
+    }
+
+    /**
+     * Las duraciones grabadas, en nanosegundos
+     *
+     * @return el histograma
+     */
+    public Histogram getNanos() { return nanos; }
+
+    @Override
+    void report(StringBuilder sb) {
+        sb.append("count=").append(nanos.getCount())
+          .append(" total=").append(millis(nanos.getSum()))
+          .append(" mean=").append(millis((long) nanos.getMean()))
+          .append(" max=").append(millis(nanos.getMax()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+
+    @Override
+    void values(Map<String, Long> out) {
+        out.put(getName() + ".count", nanos.getCount());
+        out.put(getName() + ".totalNanos", nanos.getSum());
+        out.put(getName() + ".maxNanos", nanos.getMax());
+    }
+
+    @Override
+    void reset() { nanos.reset(); }
+}
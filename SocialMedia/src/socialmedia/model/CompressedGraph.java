@@ -0,0 +1,450 @@
+package socialmedia.model;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Foto inmutable y comprimida de un grafo, al estilo WebGraph
+ * Pensada pa grafos tan grandes que ni el CSR de ints cabe en el heap
+ *
+ * Los vecinos de cada user se guardan ordenados y sin repetir, como
+ * diferencias (gaps) escritas en varint: los vecinos cercanos en indice
+ * ocupan 1 o 2 bytes en vez de 4, y no queda capacidad desperdiciada
+ * como en las filas que crecen al doble del DirectedGraph
+ *
+ * Cada fila es: varint cantidad, zigzag(primero - v), y despues
+ * (siguiente - anterior - 1) por cada vecino que falta
+ *
+ * Los bytes van en paginas de hasta 1 GB, asi el total puede pasar de 2 GB;
+ * una fila nunca queda partida entre dos paginas
+ *
+ * Mantiene los mismos accesos que CsrGraph (getNeighborsCount, copyNeighbors)
+ * mas forEachNeighbor y un iterador, que decodifican sobre la marcha
+ * Los algoritmos de SCC la recorren con cursor() (moviendose con position y
+ * seek), asi se analiza comprimida; toCsr solo hace falta pa otras cosas
+ *
+ * @version 1.0
+ */
+public final class CompressedGraph implements GraphView {
+
+    static final int PAGE_BITS = 30;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final long PAGE_MASK = PAGE_SIZE - 1;
+
+    private final String[] names;
+    private final long[] offsets; // posicion global de cada fila: pagina << PAGE_BITS | desplazamiento
+    private final byte[][] pages;
+    private final long edgeCount;
+
+    private CompressedGraph(String[] names, long[] offsets, byte[][] pages, long edgeCount) {
+        this.names = names;
+        this.offsets = offsets;
+        this.pages = pages;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Comprime cualquier grafo, fila por fila
+     *
+     * @param g el grafo a comprimir
+     * @return la foto comprimida
+     */
+    public static CompressedGraph from(GraphView g) {
+        int n = g.getVertexCount();
+        String[] names = new String[n];
+        for (int v = 0; v < n; v++) names[v] = g.getUserByIndex(v);
+        Builder b = new Builder(names);
+        int[] row = new int[16];
+        for (int v = 0; v < n; v++) {
+            int cnt = g.getNeighborsCount(v);
+            if (row.length < cnt) row = new int[Math.max(cnt, row.length * 2)];
+            g.copyNeighbors(v, row, 0);
+            b.addRow(row, cnt);
+        }
+        return b.build();
+    }
+
+    /**
+     * Arma la foto CSR equivalente (con los vecinos ya ordenados)
+     * Ojo: vuelve a ocupar 4 bytes por relacion
+     *
+     * @return la foto CSR
+     * @throws IllegalStateException si hay demasiadas relaciones pa un CSR
+     */
+    public CsrGraph toCsr() {
+        if (edgeCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many relations for a CSR snapshot: " + edgeCount);
+        }
+        int n = names.length;
+        int[] off = new int[n + 1];
+        int[] targets = new int[(int) edgeCount];
+        for (int v = 0; v < n; v++) {
+            off[v + 1] = off[v] + copyNeighbors(v, targets, off[v]);
+        }
+        return CsrGraph.wrap(names, off, targets);
+    }
+
+    /**
+     * Cuantos users hay
+     *
+     * @return el numero de users
+     */
+    @Override
+    public int getVertexCount() { return names.length; }
+
+    /**
+     * Cuantas relaciones hay en total (ya sin repetidas)
+     *
+     * @return el numero de aristas
+     */
+    @Override
+    public long getEdgeCount() { return edgeCount; }
+
+    /**
+     * Devuelve el nombre de un user por su indice
+     *
+     * @param index el indice del user
+     * @return el nombre del user
+     */
+    @Override
+    public String getUserByIndex(int index) { return names[index]; }
+
+    /**
+     * Cuantos bytes ocupan las relaciones comprimidas
+     *
+     * @return los bytes de todas las filas
+     */
+    public long getEncodedBytes() {
+        long total = 0;
+        for (byte[] p : pages) total += p.length;
+        return total;
+    }
+
+    /**
+     * Cuantos vecinos tiene un user
+     * Solo lee el primer varint de la fila
+     *
+     * @param v el indice del user
+     * @return cuantos users sigue
+     */
+    @Override
+    public int getNeighborsCount(int v) {
+        long pos = offsets[v];
+        byte[] page = pages[(int) (pos >>> PAGE_BITS)];
+        int p = (int) (pos & PAGE_MASK);
+        int b = page[p];
+        if (b >= 0) return b; // el caso comun, menos de 128 vecinos
+        int value = b & 0x7F;
+        int shift = 7;
+        do {
+            b = page[++p];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Copia los vecinos de un user (en orden creciente) a un array del que llama
+     *
+     * @param v el indice del user
+     * @param dst donde copiar
+     * @param off desde que posicion de dst
+     * @return cuantos vecinos se copiaron
+     */
+    @Override
+    public int copyNeighbors(int v, int[] dst, int off) {
+        // se decodifica aca mismo, sin crear un Decoder por llamada
+        long at = offsets[v];
+        byte[] page = pages[(int) (at >>> PAGE_BITS)];
+        int p = (int) (at & PAGE_MASK);
+        int end = rowEnd(v, page);
+        while (page[p++] < 0) { } // salta la cantidad
+        int cnt = 0;
+        int last = v;
+        while (p < end) {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = page[p++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            last = cnt == 0 ? (int) (v + ((value >>> 1) ^ -(value & 1))) : last + (int) value + 1;
+            dst[off + cnt++] = last;
+        }
+        return cnt;
+    }
+
+    /**
+     * Devuelve los vecinos de un user en un array nuevo, en orden creciente
+     *
+     * @param v el indice del user
+     * @return los vecinos
+     */
+    public int[] getNeighbors(int v) {
+        int[] out = new int[getNeighborsCount(v)];
+        copyNeighbors(v, out, 0);
+        return out;
+    }
+
+    /**
+     * Pasa cada vecino de un user, en orden creciente, sin armar ningun array
+     *
+     * @param v el indice del user
+     * @param action lo que se hace con cada vecino
+     */
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        // igual que copyNeighbors, sin crear un Decoder por llamada
+        long at = offsets[v];
+        byte[] page = pages[(int) (at >>> PAGE_BITS)];
+        int p = (int) (at & PAGE_MASK);
+        int end = rowEnd(v, page);
+        while (page[p++] < 0) { } // salta la cantidad
+        boolean first = true;
+        int last = v;
+        while (p < end) {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = page[p++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            last = first ? (int) (v + ((value >>> 1) ^ -(value & 1))) : last + (int) value + 1;
+            first = false;
+            action.accept(last);
+        }
+    }
+
+    /**
+     * Donde termina la fila de v dentro de su pagina: donde empieza la
+     * siguiente si esta en la misma pagina, si no el final de la pagina
+     */
+    private int rowEnd(int v, byte[] page) {
+        long at = offsets[v];
+        long next = offsets[v + 1];
+        return (next >>> PAGE_BITS) == (at >>> PAGE_BITS) ? (int) (next & PAGE_MASK) : page.length;
+    }
+
+    /**
+     * Iterador sobre los vecinos de un user, en orden creciente
+     *
+     * @param v el indice del user
+     * @return el iterador
+     */
+    public PrimitiveIterator.OfInt neighbors(int v) {
+        return new Decoder(v);
+    }
+
+    /**
+     * Crea un cursor que decodifica la fila sobre la marcha
+     *
+     * @return un cursor nuevo
+     */
+    @Override
+    public NeighborCursor cursor() {
+        return new Decoder(0);
+    }
+
+    /**
+     * Lee una fila de a un vecino por vez
+     * Se puede mover a otra fila con moveTo, asi sirve de cursor
+     * La fila termina donde empieza la siguiente o donde termina la pagina,
+     * porque las filas van seguidas y nunca se parten entre paginas
+     *
+     * La posicion pa seek junta dos cosas: cuantos bytes de la fila ya se
+     * leyeron (arriba) y el ultimo vecino devuelto (abajo), que hace falta pa
+     * seguir sumando los gaps
+     */
+    private final class Decoder implements PrimitiveIterator.OfInt, NeighborCursor {
+        private byte[] page;
+        private int rowAt; // donde empieza la fila en la pagina
+        private int pos;
+        private int end;
+        private int v;
+        private int last;
+        private boolean first;
+
+        Decoder(int v) {
+            if (names.length > 0) moveTo(v);
+        }
+
+        @Override
+        public void moveTo(int v) {
+            this.v = v;
+            long at = offsets[v];
+            page = pages[(int) (at >>> PAGE_BITS)];
+            rowAt = (int) (at & PAGE_MASK);
+            end = rowEnd(v, page);
+            pos = rowAt;
+            readVarLong(); // la cantidad; el fin de la fila ya se sabe por end
+            first = true;
+        }
+
+        @Override
+        public boolean hasNext() { return pos < end; }
+
+        @Override
+        public int nextInt() {
+            if (pos >= end) throw new NoSuchElementException();
+            return decode();
+        }
+
+        @Override
+        public long position() {
+            return ((long) (pos - rowAt) << 32) | (last & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public void seek(int v, long position) {
+            moveTo(v);
+            int read = (int) (position >>> 32);
+            if (rowAt + read == pos) return; // todavia no se habia devuelto ninguno
+            pos = rowAt + read;
+            last = (int) position;
+            first = false;
+        }
+
+        int decode() {
+            if (first) {
+                first = false;
+                long z = readVarLong();
+                last = (int) (v + ((z >>> 1) ^ -(z & 1)));
+            } else {
+                last += (int) readVarLong() + 1;
+            }
+            return last;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = page[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Arma un CompressedGraph fila por fila, sin tener todo el grafo en ints
+     * Las filas se agregan en orden de user: la primera es la del user 0
+     * Sirve pa comprimir mientras se lee un archivo enorme
+     */
+    public static class Builder {
+        private final String[] names;
+        private final long[] offsets;
+        private byte[][] pages = new byte[1][];
+        private int pageCount;
+        private byte[] page = new byte[1 << 12];
+        private int pos;
+        private int rows;
+        private long edges;
+
+        /**
+         * Empieza una foto con estos users
+         *
+         * @param names nombre de cada user (no se copia)
+         */
+        public Builder(String[] names) {
+            this.names = names;
+            this.offsets = new long[names.length + 1];
+        }
+
+        /**
+         * Agrega la fila del siguiente user
+         * Los vecinos se ordenan ahi mismo en el array y los repetidos se descartan
+         *
+         * @param neighbors los vecinos (se reordena)
+         * @param count cuantos vecinos validos hay en el array
+         * @throws IllegalStateException si ya estan todas las filas
+         * @throws IndexOutOfBoundsException si algun vecino no es un user
+         * @throws IllegalArgumentException si la fila no cabe en una pagina
+         */
+        public void addRow(int[] neighbors, int count) {
+            if (rows == names.length) throw new IllegalStateException("All rows already added.");
+            int v = rows;
+            Arrays.sort(neighbors, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || neighbors[i] != neighbors[i - 1]) neighbors[unique++] = neighbors[i];
+            }
+            if (unique > 0 && (neighbors[0] < 0 || neighbors[unique - 1] >= names.length)) {
+                throw new IndexOutOfBoundsException("User index out of range in row " + v);
+            }
+
+            // peor caso: 5 bytes la cantidad, 5 el primero y 5 por gap
+            long worst = 10L + 5L * unique;
+            if (worst > PAGE_SIZE) throw new IllegalArgumentException("Row too large to compress: " + v);
+            ensure((int) worst);
+            offsets[v] = ((long) pageCount << PAGE_BITS) | pos;
+
+            writeVarLong(unique);
+            if (unique > 0) {
+                long d = (long) neighbors[0] - v;
+                writeVarLong((d << 1) ^ (d >> 63));
+                for (int i = 1; i < unique; i++) writeVarLong(neighbors[i] - neighbors[i - 1] - 1);
+            }
+            edges += unique;
+            rows++;
+        }
+
+        /**
+         * Cuantas filas van
+         *
+         * @return cuantos users ya tienen su fila
+         */
+        public int getRowCount() { return rows; }
+
+        /**
+         * Termina la foto; los users que no tuvieron fila quedan sin vecinos
+         *
+         * @return la foto comprimida
+         */
+        public CompressedGraph build() {
+            int[] none = new int[0];
+            while (rows < names.length) addRow(none, 0);
+            closePage();
+            offsets[names.length] = (long) pageCount << PAGE_BITS;
+            return new CompressedGraph(names, offsets, Arrays.copyOf(pages, pageCount), edges);
+        }
+
+        /**
+         * Se asegura de que quepan bytes mas en la pagina actual
+         * Si la pagina ya llego al maximo se cierra y se empieza otra
+         */
+        private void ensure(int bytes) {
+            if ((long) pos + bytes <= page.length) return;
+            if ((long) pos + bytes <= PAGE_SIZE) {
+                long grow = Math.max((long) pos + bytes, Math.min((long) page.length * 2, PAGE_SIZE));
+                page = Arrays.copyOf(page, (int) grow);
+                return;
+            }
+            closePage();
+            page = new byte[Math.max(bytes, 1 << 12)];
+        }
+
+        private void closePage() {
+            if (pageCount == pages.length) pages = Arrays.copyOf(pages, pageCount * 2);
+            pages[pageCount++] = Arrays.copyOf(page, pos);
+            pos = 0;
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                page[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            page[pos++] = (byte) value;
+        }
+    }
+}
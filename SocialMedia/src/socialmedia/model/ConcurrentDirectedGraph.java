@@ -0,0 +1,315 @@
+package socialmedia.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Version del grafo pa recibir follows desde varios hilos a la vez
+ * mientras otros leen o sacan fotos pa los algoritmos
+ *
+ * - El indice nombre -> user es un ConcurrentHashMap, buscar no toma ningun lock
+ * - Los users viven en bloques de tamaño fijo que nunca se mueven; crecer solo
+ *   agrega bloques, asi un user publicado no cambia de lugar
+ * - Cada fila de vecinos se protege con su propio monitor, dos hilos que
+ *   agregan relaciones de users distintos no se estorban. Las filas grandes
+ *   llevan un RowIndex como en DirectedGraph, asi ver si la relacion ya estaba
+ *   no recorre la fila y el monitor de un user con millones de seguidos se
+ *   tiene un rato corto (los que escriben en la misma fila igual van de a uno)
+ * - snapshot() devuelve un CsrGraph consistente: espera a que terminen las
+ *   escrituras en curso y no deja empezar otras mientras copia. Las escrituras
+ *   entran por una de varias compuertas (un ReentrantReadWriteLock por franja)
+ *   pa que no peleen todas por el mismo contador del lock
+ *
+ * No guarda la adyacencia de entrada ni avisa a GraphListener: pa analizar se
+ * saca una foto, y si hace falta editar se pasa a DirectedGraph con toDirectedGraph
+ *
+ * @version 1.0
+ */
+public class ConcurrentDirectedGraph {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** Fila de un user, se modifica solo con su monitor tomado */
+    private static final class Row {
+        final String name;
+        int[] adj = new int[4];
+        int count;
+        RowIndex index; // null mientras la fila es chica
+
+        Row(String name) { this.name = name; }
+
+        /**
+         * Dice si w ya esta en la fila; las chicas se recorren y las grandes
+         * usan su indice, que se arma aca la primera vez que hace falta
+         */
+        boolean contains(int w) {
+            if (index == null) {
+                if (count < RowIndex.SORTED_MIN) {
+                    for (int i = 0; i < count; i++) {
+                        if (adj[i] == w) return true;
+                    }
+                    return false;
+                }
+                index = RowIndex.of(adj, count);
+            }
+            return index.contains(w);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>();
+    private final Object growLock = new Object();
+    private volatile Row[][] chunks = new Row[8][];
+    private volatile int size; // se publica despues de guardar la fila
+
+    // compuertas de escritura: los que escriben toman el read lock de una,
+    // snapshot toma el write lock de todas
+    private final ReentrantReadWriteLock[] gates;
+    private final int gateMask;
+
+    /**
+     * Crea el grafo con una compuerta por cada dos procesadores mas o menos
+     */
+    public ConcurrentDirectedGraph() {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2;
+        gates = new ReentrantReadWriteLock[n];
+        for (int i = 0; i < n; i++) gates[i] = new ReentrantReadWriteLock();
+        gateMask = n - 1;
+    }
+
+    /**
+     * Busca el indice de un user, sin locks
+     *
+     * @param name el nombre del user
+     * @return el indice o -1 si no existe
+     */
+    public int indexOf(String name) {
+        Integer i = index.get(name);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Agrega un user si no existe
+     *
+     * @param name el nombre del user
+     * @return el indice del user (nuevo o el que ya tenia)
+     */
+    public int addUser(String name) {
+        Integer i = index.get(name);
+        if (i != null) return i;
+        ReentrantReadWriteLock.ReadLock gate = gate();
+        gate.lock();
+        try {
+            return index.computeIfAbsent(name, this::publish);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Guarda la fila de un user nuevo y recien ahi lo cuenta
+     */
+    private Integer publish(String name) {
+        synchronized (growLock) {
+            int v = size;
+            int c = v >>> CHUNK_BITS;
+            Row[][] dir = chunks;
+            if (c == dir.length) {
+                Row[][] bigger = new Row[dir.length * 2][];
+                System.arraycopy(dir, 0, bigger, 0, dir.length);
+                dir = bigger;
+            }
+            if (dir[c] == null) dir[c] = new Row[CHUNK_SIZE];
+            dir[c][v & (CHUNK_SIZE - 1)] = new Row(name);
+            chunks = dir;
+            size = v + 1;
+            return v;
+        }
+    }
+
+    /**
+     * Agrega una relacion por nombre
+     *
+     * @param from el user que sigue
+     * @param to el user que es seguido
+     * @return true si la relacion era nueva, false si ya estaba o falta un user
+     */
+    public boolean addRelation(String from, String to) {
+        int iFrom = indexOf(from);
+        int iTo = indexOf(to);
+        if (iFrom == -1 || iTo == -1) return false;
+        return addRelation(iFrom, iTo);
+    }
+
+    /**
+     * Agrega una relacion usando los indices de los users
+     * Si ya existe la relacion, no hace nada
+     *
+     * @param iFrom el indice del user que sigue
+     * @param iTo el indice del user que es seguido
+     * @return true si la relacion era nueva
+     */
+    public boolean addRelation(int iFrom, int iTo) {
+        Row r = row(iFrom, iTo);
+        ReentrantReadWriteLock.ReadLock gate = gate();
+        gate.lock();
+        try {
+            synchronized (r) {
+                if (r.contains(iTo)) return false;
+                int[] adj = r.adj;
+                if (r.count == adj.length) {
+                    int[] bigger = new int[adj.length * 2];
+                    System.arraycopy(adj, 0, bigger, 0, r.count);
+                    r.adj = adj = bigger;
+                }
+                adj[r.count++] = iTo;
+                if (r.index != null) r.index = r.index.add(iTo);
+                return true;
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Quita una relacion usando los indices de los users
+     *
+     * @param iFrom el indice del user que sigue
+     * @param iTo el indice del user que es seguido
+     * @return true si la relacion existia
+     */
+    public boolean removeRelation(int iFrom, int iTo) {
+        Row r = row(iFrom, iTo);
+        ReentrantReadWriteLock.ReadLock gate = gate();
+        gate.lock();
+        try {
+            synchronized (r) {
+                if (r.index != null && !r.index.contains(iTo)) return false;
+                int[] adj = r.adj;
+                for (int i = 0; i < r.count; i++) {
+                    if (adj[i] == iTo) {
+                        System.arraycopy(adj, i + 1, adj, i, r.count - i - 1);
+                        r.count--;
+                        if (r.index != null) r.index = r.index.remove(iTo);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Cuantos users hay (todos los contados ya estan completos)
+     *
+     * @return el numero de users
+     */
+    public int getVertexCount() { return size; }
+
+    /**
+     * Devuelve el nombre de un user por su indice
+     *
+     * @param v el indice del user
+     * @return el nombre del user
+     */
+    public String getUserByIndex(int v) { return row(v, v).name; }
+
+    /**
+     * Cuantos users sigue un user en este momento
+     *
+     * @param v el indice del user
+     * @return cuantos vecinos tiene
+     */
+    public int getNeighborsCount(int v) {
+        Row r = row(v, v);
+        synchronized (r) {
+            return r.count;
+        }
+    }
+
+    /**
+     * Copia los vecinos actuales de un user
+     *
+     * @param v el indice del user
+     * @return un array nuevo con los vecinos
+     */
+    public int[] getNeighbors(int v) {
+        Row r = row(v, v);
+        synchronized (r) {
+            int[] out = new int[r.count];
+            System.arraycopy(r.adj, 0, out, 0, r.count);
+            return out;
+        }
+    }
+
+    /**
+     * Foto consistente del grafo sin el reverso
+     *
+     * @return la foto
+     */
+    public CsrGraph snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * Foto consistente del grafo: ninguna escritura queda a medias
+     * Las escrituras esperan mientras se copia, las lecturas no
+     *
+     * @param withReverse si tambien se arma el CSR reverso
+     * @return la foto
+     */
+    public CsrGraph snapshot(boolean withReverse) {
+        for (ReentrantReadWriteLock g : gates) g.writeLock().lock();
+        CsrGraph csr;
+        try {
+            int n = size;
+            Row[][] dir = chunks;
+            String[] names = new String[n];
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                Row r = dir[v >>> CHUNK_BITS][v & (CHUNK_SIZE - 1)];
+                names[v] = r.name;
+                offsets[v + 1] = offsets[v] + r.count;
+            }
+            int[] targets = new int[offsets[n]];
+            for (int v = 0; v < n; v++) {
+                Row r = dir[v >>> CHUNK_BITS][v & (CHUNK_SIZE - 1)];
+                System.arraycopy(r.adj, 0, targets, offsets[v], r.count);
+            }
+            csr = CsrGraph.wrap(names, offsets, targets);
+        } finally {
+            for (int i = gates.length - 1; i >= 0; i--) gates[i].writeLock().unlock();
+        }
+        return withReverse ? csr.withReverse() : csr; // el reverso se arma sin frenar a nadie
+    }
+
+    /**
+     * Pasa una foto del grafo a un DirectedGraph editable
+     *
+     * @return el grafo nuevo
+     */
+    public DirectedGraph toDirectedGraph() {
+        return snapshot().toDirectedGraph();
+    }
+
+    /**
+     * Fila de un user, revisando los dos indices de la operacion
+     */
+    private Row row(int v, int other) {
+        int n = size;
+        if (v < 0 || v >= n || other < 0 || other >= n) {
+            throw new IndexOutOfBoundsException("User index out of range: " + v + " -> " + other);
+        }
+        return chunks[v >>> CHUNK_BITS][v & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Compuerta de escritura del hilo actual
+     */
+    private ReentrantReadWriteLock.ReadLock gate() {
+        long id = Thread.currentThread().getId();
+        return gates[(int) (id ^ (id >>> 16)) & gateMask].readLock();
+    }
+}
@@ -0,0 +1,260 @@
+package socialmedia.model;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Foto inmutable de un DirectedGraph en formato CSR (compressed sparse row)
+ * Todas las aristas viven en un solo array contiguo, asi los recorridos
+ * largos no saltan por todo el heap como con las filas sueltas del grafo
+ *
+ * Los vecinos de v estan en targets[offsets[v]] .. targets[offsets[v + 1] - 1]
+ * Opcionalmente guarda tambien el CSR reverso (quien sigue a v)
+ *
+ * Los arrays que devuelven los getters son los internos, no se deben modificar
+ *
+ * @version 1.0
+ */
+public final class CsrGraph implements GraphView {
+
+    private final String[] names;
+    private final int[] offsets;
+    private final int[] targets;
+
+    // CSR reverso, null si no se pidio
+    private final int[] revOffsets;
+    private final int[] revTargets;
+
+    /**
+     * Constructor interno, los arrays ya vienen armados
+     */
+    private CsrGraph(String[] names, int[] offsets, int[] targets,
+                     int[] revOffsets, int[] revTargets) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.revOffsets = revOffsets;
+        this.revTargets = revTargets;
+    }
+
+    /**
+     * Compacta un grafo en CSR sin el reverso
+     *
+     * @param g el grafo a copiar
+     * @return la foto del grafo
+     */
+    public static CsrGraph from(GraphView g) {
+        return from(g, false);
+    }
+
+    /**
+     * Compacta un grafo en CSR, con o sin el reverso precalculado
+     *
+     * @param g el grafo a copiar
+     * @param withReverse si tambien se arma el CSR reverso
+     * @return la foto del grafo
+     * @throws IllegalStateException si hay demasiadas relaciones pa un CSR
+     */
+    public static CsrGraph from(GraphView g, boolean withReverse) {
+        int n = g.getVertexCount();
+        String[] names = new String[n];
+        int[] offsets = new int[n + 1];
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            names[v] = g.getUserByIndex(v);
+            total += g.getNeighborsCount(v);
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too many relations for a CSR snapshot.");
+            }
+            offsets[v + 1] = (int) total;
+        }
+        int[] targets = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            g.copyNeighbors(v, targets, offsets[v]);
+        }
+        CsrGraph csr = new CsrGraph(names, offsets, targets, null, null);
+        return withReverse ? csr.withReverse() : csr;
+    }
+
+    /**
+     * Arma un CSR a partir de arrays ya hechos, sin copiarlos
+     *
+     * @param names nombre de cada user
+     * @param offsets inicio de los vecinos de cada user (n + 1)
+     * @param targets los vecinos de todos los users seguidos
+     * @return la foto del grafo
+     */
+    public static CsrGraph wrap(String[] names, int[] offsets, int[] targets) {
+        if (offsets.length != names.length + 1 || offsets[names.length] != targets.length) {
+            throw new IllegalArgumentException("Inconsistent CSR arrays.");
+        }
+        return new CsrGraph(names, offsets, targets, null, null);
+    }
+
+    /**
+     * Devuelve una foto con el CSR reverso, comparte los arrays de ida
+     * Si ya lo tiene, devuelve la misma foto
+     *
+     * @return la foto con el reverso
+     */
+    public CsrGraph withReverse() {
+        if (revOffsets != null) return this;
+        int n = names.length;
+        int[] rOff = new int[n + 1];
+        for (int i = 0; i < targets.length; i++) rOff[targets[i] + 1]++;
+        for (int v = 0; v < n; v++) rOff[v + 1] += rOff[v];
+        int[] rTargets = new int[targets.length];
+        int[] fill = new int[n];
+        System.arraycopy(rOff, 0, fill, 0, n);
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                rTargets[fill[targets[i]]++] = v;
+            }
+        }
+        return new CsrGraph(names, offsets, targets, rOff, rTargets);
+    }
+
+    /**
+     * Arma un DirectedGraph editable con el mismo contenido que la foto
+     *
+     * @return el grafo nuevo
+     * @throws IllegalStateException si la foto tiene nombres repetidos
+     */
+    public DirectedGraph toDirectedGraph() {
+        DirectedGraph g = new DirectedGraph();
+        int n = names.length;
+        for (int v = 0; v < n; v++) {
+            g.addUser(names[v]);
+            if (g.getVertexCount() != v + 1) {
+                throw new IllegalStateException("Duplicate user name: " + names[v]);
+            }
+        }
+        int[] from = new int[targets.length];
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) from[i] = v;
+        }
+        g.addRelations(from, targets);
+        return g;
+    }
+
+    /**
+     * Cuantos users hay
+     *
+     * @return el numero de users
+     */
+    @Override
+    public int getVertexCount() { return names.length; }
+
+    /**
+     * Cuantas relaciones hay en total
+     *
+     * @return el numero de aristas
+     */
+    @Override
+    public long getEdgeCount() { return targets.length; }
+
+    /**
+     * Devuelve el nombre de un user por su indice
+     *
+     * @param index el indice del user
+     * @return el nombre del user
+     */
+    @Override
+    public String getUserByIndex(int index) { return names[index]; }
+
+    /**
+     * Cuantos vecinos tiene un user
+     *
+     * @param v el indice del user
+     * @return cuantos users sigue
+     */
+    @Override
+    public int getNeighborsCount(int v) { return offsets[v + 1] - offsets[v]; }
+
+    /**
+     * Copia los vecinos de un user a un array del que llama
+     *
+     * @param v el indice del user
+     * @param dst donde copiar
+     * @param off desde que posicion de dst
+     * @return cuantos vecinos se copiaron
+     */
+    @Override
+    public int copyNeighbors(int v, int[] dst, int off) {
+        int cnt = offsets[v + 1] - offsets[v];
+        System.arraycopy(targets, offsets[v], dst, off, cnt);
+        return cnt;
+    }
+
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        for (int i = offsets[v], end = offsets[v + 1]; i < end; i++) action.accept(targets[i]);
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private int pos;
+            private int end;
+
+            @Override
+            public void moveTo(int v) {
+                pos = offsets[v];
+                end = offsets[v + 1];
+            }
+
+            @Override
+            public boolean hasNext() { return pos < end; }
+
+            @Override
+            public int nextInt() {
+                if (pos >= end) throw new NoSuchElementException();
+                return targets[pos++];
+            }
+
+            @Override
+            public long position() { return pos; }
+
+            @Override
+            public void seek(int v, long position) {
+                pos = (int) position;
+                end = offsets[v + 1];
+            }
+        };
+    }
+
+    /**
+     * Offsets de ida (n + 1 posiciones)
+     *
+     * @return el array interno de offsets
+     */
+    public int[] getOffsets() { return offsets; }
+
+    /**
+     * Vecinos de ida de todos los users seguidos
+     *
+     * @return el array interno de targets
+     */
+    public int[] getTargets() { return targets; }
+
+    /**
+     * Si la foto tiene el CSR reverso
+     *
+     * @return true si tiene el reverso
+     */
+    public boolean hasReverse() { return revOffsets != null; }
+
+    /**
+     * Offsets del reverso, null si no se armo
+     *
+     * @return el array interno de offsets reversos
+     */
+    public int[] getReverseOffsets() { return revOffsets; }
+
+    /**
+     * Seguidores de todos los users seguidos, null si no se armo
+     *
+     * @return el array interno de targets reversos
+     */
+    public int[] getReverseTargets() { return revTargets; }
+}
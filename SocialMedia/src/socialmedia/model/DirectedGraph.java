@@ -1,5 +1,12 @@
 package socialmedia.model;
 
+import socialmedia.metrics.Metrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
 /**
  * Grafo dirigido pa representar una red social
  * Usa listas de adyacencia pa guardar los users y sus conexiones
@@ -8,16 +15,38 @@ package socialmedia.model;
  * @author Diego 
  * @version 1.0
  */
-public class DirectedGraph {
+public class DirectedGraph implements GraphView {
 
     // array de usuarios
     private String[] users;
     private int userCount;
 
+    // nombre -> indice, siempre sincronizado con users
+    private StringIntMap userIndex;
+
     // pa la adyacencia - guarda los vecinos de cada user
     private int[][] adj;
     private int[] adjCount;
 
+    // indice de las filas grandes (ordenado o hash, ver RowIndex), null en las chicas
+    // se arma la primera vez que se busca en la fila y despues se lleva al dia
+    private RowIndex[] index;
+
+    // adyacencia de entrada - quien sigue a cada user, pa poder borrar rapido
+    private int[][] inAdj;
+    private int[] inCount;
+
+    // cuantas relaciones hay, se lleva al dia en cada cambio
+    private long edgeCount;
+
+    // los que quieren enterarse de los cambios
+    private GraphListener[] listeners;
+    private int listenerCount;
+
+    // debajo de esto addRelations va una por una, ordenar no vale la pena
+    private static final int BULK_THRESHOLD = 64;
+    private static final int RADIX = 1 << 16;
+
     /**
      * Constructor del grafo - inicializa todo con capacidad pa 8 users
      * Si se llena, se hace mas grande automaticamente
@@ -25,21 +54,54 @@ public class DirectedGraph {
     public DirectedGraph() {
         users = new String[8];
         userCount = 0;
+        userIndex = new StringIntMap();
         adj = new int[8][];
         adjCount = new int[8];
+        index = new RowIndex[8];
+        inAdj = new int[8][];
+        inCount = new int[8];
+        listeners = new GraphListener[0];
+        listenerCount = 0;
+    }
+
+    /**
+     * Registra a alguien pa que se entere de los cambios del grafo
+     * 
+     * @param l el listener a registrar
+     */
+    public void addListener(GraphListener l) {
+        if (listenerCount == listeners.length) {
+            GraphListener[] bigger = new GraphListener[listeners.length * 2 + 1];
+            for (int i = 0; i < listenerCount; i++) bigger[i] = listeners[i];
+            listeners = bigger;
+        }
+        listeners[listenerCount++] = l;
+    }
+
+    /**
+     * Quita un listener registrado, si no estaba no hace nada
+     * 
+     * @param l el listener a quitar
+     */
+    public void removeListener(GraphListener l) {
+        for (int i = 0; i < listenerCount; i++) {
+            if (listeners[i] == l) {
+                for (int j = i + 1; j < listenerCount; j++) listeners[j - 1] = listeners[j];
+                listeners[--listenerCount] = null;
+                return;
+            }
+        }
     }
 
     /**
      * Busca un user por su nombre y devuelve su indice
+     * Usa el diccionario asi que es O(1) y no recorre el array
      * 
      * @param name el nombre del user a buscar
      * @return el indice del user o -1 si no existe
      */
-    private int indexOfUser(String name) {
-        for (int i = 0; i < userCount; i++) {
-            if (users[i].equals(name)) return i;
-        }
-        return -1;
+    public int indexOf(String name) {
+        return userIndex.get(name);
     }
 
     /**
@@ -62,6 +124,18 @@ public class DirectedGraph {
         int[] newAdjCount = new int[newCap];
         for (int i = 0; i < userCount; i++) newAdjCount[i] = adjCount[i];
         adjCount = newAdjCount;
+
+        RowIndex[] newIndex = new RowIndex[newCap];
+        for (int i = 0; i < userCount; i++) newIndex[i] = index[i];
+        index = newIndex;
+
+        int[][] newInAdj = new int[newCap][];
+        for (int i = 0; i < userCount; i++) newInAdj[i] = inAdj[i];
+        inAdj = newInAdj;
+
+        int[] newInCount = new int[newCap];
+        for (int i = 0; i < userCount; i++) newInCount[i] = inCount[i];
+        inCount = newInCount;
     }
 
     /**
@@ -72,6 +146,9 @@ public class DirectedGraph {
     private void initAdjRow(int v) {
         adj[v] = new int[4];
         adjCount[v] = 0;
+        index[v] = null;
+        inAdj[v] = new int[4];
+        inCount[v] = 0;
     }
 
     /**
@@ -87,6 +164,117 @@ public class DirectedGraph {
         int[] newRow = new int[newCap];
         for (int i = 0; i < adjCount[v]; i++) newRow[i] = adj[v][i];
         adj[v] = newRow;
+        if (Metrics.ENABLED) {
+            Metrics.ROW_RESIZES.increment();
+            Metrics.ROW_RESIZE_COPIED.add(adjCount[v]);
+        }
+    }
+
+    /**
+     * Agrega un seguidor a la fila de entrada de un user
+     * 
+     * @param v el user seguido
+     * @param u el user que lo sigue
+     */
+    private void addInNeighbor(int v, int u) {
+        if (inCount[v] == inAdj[v].length) {
+            int[] newRow = new int[Math.max(4, inAdj[v].length * 2)];
+            for (int i = 0; i < inCount[v]; i++) newRow[i] = inAdj[v][i];
+            inAdj[v] = newRow;
+            if (Metrics.ENABLED) {
+                Metrics.ROW_RESIZES.increment();
+                Metrics.ROW_RESIZE_COPIED.add(inCount[v]);
+            }
+        }
+        inAdj[v][inCount[v]++] = u;
+    }
+
+    /**
+     * Quita un valor de una fila corriendo los siguientes pa no cambiar el orden
+     * 
+     * @param row la fila
+     * @param count cuantos valores tiene
+     * @param value el valor a quitar
+     * @return true si estaba
+     */
+    private static boolean removeFromRow(int[] row, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (row[i] == value) {
+                for (int j = i + 1; j < count; j++) row[j - 1] = row[j];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cambia un valor por otro en una fila
+     * 
+     * @param row la fila
+     * @param count cuantos valores tiene
+     * @param from el valor viejo
+     * @param to el valor nuevo
+     */
+    private static void replaceInRow(int[] row, int count, int from, int to) {
+        for (int i = 0; i < count; i++) {
+            if (row[i] == from) { row[i] = to; return; }
+        }
+    }
+
+    /**
+     * Dice si v ya sigue a w
+     * Las filas chicas se recorren; las grandes usan su indice, que se arma
+     * aca la primera vez que hace falta
+     * 
+     * @param v el user que sigue
+     * @param w el user seguido
+     * @return true si la relacion existe
+     */
+    private boolean rowContains(int v, int w) {
+        RowIndex ix = index[v];
+        int cnt = adjCount[v];
+        if (ix == null) {
+            if (cnt < RowIndex.SORTED_MIN) {
+                int[] row = adj[v];
+                for (int i = 0; i < cnt; i++) {
+                    if (row[i] == w) {
+                        if (Metrics.ENABLED) Metrics.DUPLICATE_SCAN.record(i + 1);
+                        return true;
+                    }
+                }
+                if (Metrics.ENABLED) Metrics.DUPLICATE_SCAN.record(cnt);
+                return false;
+            }
+            ix = RowIndex.of(adj[v], cnt);
+            index[v] = ix;
+            if (Metrics.ENABLED) Metrics.ROW_INDEX_BUILDS.increment();
+        }
+        if (Metrics.ENABLED) Metrics.INDEXED_LOOKUPS.increment();
+        return ix.contains(w);
+    }
+
+    /**
+     * Saca un valor del indice de una fila (si tiene)
+     * 
+     * @param v el user dueño de la fila
+     * @param w el valor que se quito de la fila
+     */
+    private void unindex(int v, int w) {
+        if (index[v] != null) index[v] = index[v].remove(w);
+    }
+
+    /**
+     * Cambia un valor por otro en el indice de una fila (si tiene)
+     * 
+     * @param v el user dueño de la fila
+     * @param from el valor viejo
+     * @param to el valor nuevo
+     */
+    private void reindex(int v, int from, int to) {
+        RowIndex ix = index[v];
+        if (ix == null) return;
+        ix = ix.remove(from);
+        index[v] = ix == null ? null : ix.add(to);
     }
 
     /**
@@ -95,11 +283,13 @@ public class DirectedGraph {
      * @param name el nombre del user a agregar
      */
     public void addUser(String name) {
-        if (indexOfUser(name) != -1) return;
+        if (indexOf(name) != -1) return;
         ensureUsersCapacity();
         users[userCount] = name;
+        userIndex.put(name, userCount);
         initAdjRow(userCount);
         userCount++;
+        for (int i = 0; i < listenerCount; i++) listeners[i].userAdded(userCount - 1);
     }
 
     /**
@@ -110,18 +300,347 @@ public class DirectedGraph {
      * @param to el user que es seguido
      */
     public void addRelation(String from, String to) {
-        int iFrom = indexOfUser(from);
-        int iTo = indexOfUser(to);
+        int iFrom = indexOf(from);
+        int iTo = indexOf(to);
         if (iFrom == -1 || iTo == -1) {
             System.out.println("Cannot add relation: user not found.");
             return;
         }
-        for (int i = 0; i < adjCount[iFrom]; i++) {
-            if (adj[iFrom][i] == iTo) return;
+        addRelation(iFrom, iTo);
+    }
+
+    /**
+     * Agrega una relacion usando los indices de los users
+     * Si ya existe la relacion, no hace nada
+     * Revisar si ya existe cuesta lo mismo que hasRelation, no recorre las filas grandes
+     * 
+     * @param iFrom el indice del user que sigue
+     * @param iTo el indice del user que es seguido
+     * @return true si la relacion era nueva
+     */
+    public boolean addRelation(int iFrom, int iTo) {
+        if (iFrom < 0 || iFrom >= userCount || iTo < 0 || iTo >= userCount) {
+            throw new IndexOutOfBoundsException("User index out of range: " + iFrom + " -> " + iTo);
+        }
+        if (rowContains(iFrom, iTo)) {
+            if (Metrics.ENABLED) Metrics.RELATIONS_DUPLICATE.increment();
+            return false;
         }
+        if (Metrics.ENABLED) Metrics.RELATIONS_ADDED.increment();
         ensureAdjCapacity(iFrom);
         adj[iFrom][adjCount[iFrom]] = iTo;
         adjCount[iFrom]++;
+        if (index[iFrom] != null) index[iFrom] = index[iFrom].add(iTo);
+        edgeCount++;
+        addInNeighbor(iTo, iFrom);
+        for (int i = 0; i < listenerCount; i++) listeners[i].relationAdded(iFrom, iTo);
+        return true;
+    }
+
+    /**
+     * Dice si un user sigue a otro, por indices
+     * Cuesta O(1) en las filas grandes, O(log d) en las medianas y
+     * recorre la fila solo si es chica, sin importar cuantos siga el user
+     * 
+     * @param iFrom el indice del user que sigue
+     * @param iTo el indice del user que es seguido
+     * @return true si la relacion existe
+     */
+    public boolean hasRelation(int iFrom, int iTo) {
+        if (iFrom < 0 || iFrom >= userCount || iTo < 0 || iTo >= userCount) {
+            throw new IndexOutOfBoundsException("User index out of range: " + iFrom + " -> " + iTo);
+        }
+        return rowContains(iFrom, iTo);
+    }
+
+    /**
+     * Dice si un user sigue a otro, por nombre
+     * 
+     * @param from el user que sigue
+     * @param to el user que es seguido
+     * @return true si los dos existen y from sigue a to
+     */
+    public boolean follows(String from, String to) {
+        int iFrom = indexOf(from);
+        int iTo = indexOf(to);
+        if (iFrom == -1 || iTo == -1) return false;
+        return rowContains(iFrom, iTo);
+    }
+
+    /**
+     * Agrega muchas relaciones de una vez usando indices
+     * 
+     * @param from indices de los users que siguen
+     * @param to indices de los users seguidos (mismo largo que from)
+     */
+    public void addRelations(int[] from, int[] to) {
+        if (from.length != to.length) {
+            throw new IllegalArgumentException("Relation arrays differ in length.");
+        }
+        addRelations(from, to, from.length);
+    }
+
+    /**
+     * Agrega muchas relaciones de una vez usando indices
+     * Pensado pa los cargadores, que ya resolvieron los nombres
+     * 
+     * En vez de revisar la fila completa por cada relacion (cuadratico pa los
+     * users con muchos vecinos), ordena los pares por (from, to) con radix sort,
+     * descarta los repetidos en una pasada y recien ahi llena las filas.
+     * El resultado es el mismo que llamar addRelation una por una: se queda
+     * la primera aparicion de cada par y los vecinos quedan en el orden de llegada
+     * 
+     * @param from indices de los users que siguen
+     * @param to indices de los users seguidos
+     * @param count cuantas relaciones tomar de los arrays
+     */
+    public void addRelations(int[] from, int[] to, int count) {
+        if (count < BULK_THRESHOLD) {
+            for (int i = 0; i < count; i++) addRelation(from[i], to[i]);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (from[i] < 0 || from[i] >= userCount || to[i] < 0 || to[i] >= userCount) {
+                throw new IndexOutOfBoundsException("User index out of range: " + from[i] + " -> " + to[i]);
+            }
+        }
+        long t0 = Metrics.ENABLED ? Metrics.BULK_ADD.start() : 0;
+        long before = edgeCount;
+
+        int[] order = sortByPair(from, to, count);
+        boolean[] keep = new boolean[count];
+        int added = 0;
+        int[] existing = new int[0];
+        int i = 0;
+        while (i < count) {
+            int s = from[order[i]];
+            int j = i;
+            while (j < count && from[order[j]] == s) j++;
+
+            // los vecinos que ya tenia s, ordenados pa mezclarlos con los nuevos
+            int d = adjCount[s];
+            if (existing.length < d) existing = new int[d];
+            System.arraycopy(adj[s], 0, existing, 0, d);
+            Arrays.sort(existing, 0, d);
+
+            int e = 0;
+            int prev = -1;
+            int kept = 0;
+            for (int k = i; k < j; k++) {
+                int p = order[k];
+                int t = to[p];
+                if (t == prev) continue; // repetido dentro del lote, el estable deja primero al mas viejo
+                prev = t;
+                while (e < d && existing[e] < t) e++;
+                if (e < d && existing[e] == t) continue;
+                keep[p] = true;
+                kept++;
+                added++;
+            }
+            // la fila crece una sola vez al tamaño justo
+            // y su indice se vuelve a armar cuando se busque en ella
+            index[s] = null;
+            if (adj[s].length < d + kept) {
+                int[] newRow = new int[d + kept];
+                System.arraycopy(adj[s], 0, newRow, 0, d);
+                adj[s] = newRow;
+            }
+            i = j;
+        }
+
+        // cada listener se entera de una relacion justo despues de que queda en
+        // las filas, igual que con addRelation: los que recorren el grafo al
+        // enterarse (IncrementalScc) no deben ver relaciones que no les avisaron
+        if (added > 0) {
+            for (int l = 0; l < listenerCount; l++) listeners[l].batchStarted(added);
+        }
+        for (int p = 0; p < count; p++) {
+            if (!keep[p]) continue;
+            int u = from[p], v = to[p];
+            adj[u][adjCount[u]++] = v;
+            addInNeighbor(v, u);
+            edgeCount++;
+            for (int l = 0; l < listenerCount; l++) listeners[l].relationAdded(u, v);
+        }
+        if (added > 0) {
+            for (int l = 0; l < listenerCount; l++) listeners[l].batchFinished();
+        }
+        if (Metrics.ENABLED) {
+            Metrics.RELATIONS_ADDED.add(edgeCount - before);
+            Metrics.RELATIONS_DUPLICATE.add(count - (edgeCount - before));
+            Metrics.BULK_ADD.stop(t0);
+        }
+    }
+
+    /**
+     * Ordena las posiciones de los pares por (from, to) con radix sort LSD
+     * de 16 bits por pasada, estable, asi entre pares iguales queda primero
+     * el que llego antes. Las pasadas de los bits altos se saltan si todos
+     * los indices caben en 16 bits
+     * 
+     * @param from indices de los users que siguen
+     * @param to indices de los users seguidos
+     * @param count cuantos pares ordenar
+     * @return las posiciones de los pares en orden
+     */
+    private int[] sortByPair(int[] from, int[] to, int count) {
+        int[] order = new int[count];
+        int[] tmp = new int[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        int[] bucket = new int[RADIX + 1];
+        boolean wide = userCount > RADIX;
+        // primero la llave menos importante: to, despues from
+        int[][] keys = { to, to, from, from };
+        for (int pass = 0; pass < 4; pass++) {
+            int shift = (pass & 1) * 16;
+            if (shift != 0 && !wide) continue;
+            int[] key = keys[pass];
+            Arrays.fill(bucket, 0);
+            for (int i = 0; i < count; i++) bucket[((key[i] >>> shift) & (RADIX - 1)) + 1]++;
+            for (int b = 0; b < RADIX; b++) bucket[b + 1] += bucket[b];
+            for (int i = 0; i < count; i++) {
+                int p = order[i];
+                tmp[bucket[(key[p] >>> shift) & (RADIX - 1)]++] = p;
+            }
+            int[] swap = order; order = tmp; tmp = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Quita una relacion de un user a otro
+     * Cuesta O(grado de salida de from + grado de entrada de to)
+     * 
+     * @param from el user que sigue
+     * @param to el user que es seguido
+     * @return true si la relacion existia
+     */
+    public boolean removeRelation(String from, String to) {
+        int iFrom = indexOf(from);
+        int iTo = indexOf(to);
+        if (iFrom == -1 || iTo == -1) return false;
+        if (!removeFromRow(adj[iFrom], adjCount[iFrom], iTo)) return false;
+        adjCount[iFrom]--;
+        unindex(iFrom, iTo);
+        edgeCount--;
+        if (removeFromRow(inAdj[iTo], inCount[iTo], iFrom)) inCount[iTo]--;
+        for (int i = 0; i < listenerCount; i++) listeners[i].relationRemoved(iFrom, iTo);
+        return true;
+    }
+
+    /**
+     * Quita un user y todas sus relaciones, de ida y de vuelta
+     * Pa no dejar huecos, el ultimo user pasa a ocupar el indice del borrado
+     * Cuesta O(grados de los dos users), no reconstruye el grafo
+     * 
+     * @param name el nombre del user a quitar
+     * @return true si el user existia
+     */
+    public boolean removeUser(String name) {
+        int v = indexOf(name);
+        if (v == -1) return false;
+
+        // sacar a v de las filas de entrada de los que sigue
+        edgeCount -= adjCount[v];
+        for (int i = 0; i < adjCount[v]; i++) {
+            int w = adj[v][i];
+            if (w != v && removeFromRow(inAdj[w], inCount[w], v)) inCount[w]--;
+        }
+        // y de las filas de salida de los que lo siguen
+        for (int i = 0; i < inCount[v]; i++) {
+            int u = inAdj[v][i];
+            if (u != v && removeFromRow(adj[u], adjCount[u], v)) {
+                adjCount[u]--;
+                unindex(u, v);
+                edgeCount--;
+            }
+        }
+
+        // el ultimo pasa al lugar de v y se le cambia el indice en sus vecinos
+        int last = userCount - 1;
+        if (v != last) {
+            users[v] = users[last];
+            adj[v] = adj[last];
+            adjCount[v] = adjCount[last];
+            index[v] = index[last];
+            inAdj[v] = inAdj[last];
+            inCount[v] = inCount[last];
+            userIndex.put(users[v], v);
+
+            for (int i = 0; i < adjCount[v]; i++) {
+                int w = adj[v][i];
+                if (w == last) {
+                    adj[v][i] = v; // se sigue a si mismo
+                    reindex(v, last, v);
+                    replaceInRow(inAdj[v], inCount[v], last, v);
+                } else {
+                    replaceInRow(inAdj[w], inCount[w], last, v);
+                }
+            }
+            for (int i = 0; i < inCount[v]; i++) {
+                int u = inAdj[v][i];
+                if (u != v) {
+                    replaceInRow(adj[u], adjCount[u], last, v);
+                    reindex(u, last, v);
+                }
+            }
+        }
+        users[last] = null;
+        adj[last] = null;
+        adjCount[last] = 0;
+        index[last] = null;
+        inAdj[last] = null;
+        inCount[last] = 0;
+        userCount--;
+        userIndex.remove(name);
+
+        for (int i = 0; i < listenerCount; i++) listeners[i].userRemoved(name, v, last);
+        return true;
+    }
+
+    /**
+     * Devuelve la memoria sobrante: corta cada fila al tamaño justo
+     * y achica los arrays de users si quedaron muy vacios despues de borrar
+     */
+    public void compact() {
+        for (int v = 0; v < userCount; v++) {
+            adj[v] = trimRow(adj[v], adjCount[v]);
+            inAdj[v] = trimRow(inAdj[v], inCount[v]);
+        }
+        int cap = Math.max(8, userCount);
+        if (cap < users.length) {
+            String[] newUsers = new String[cap];
+            int[][] newAdj = new int[cap][];
+            int[] newAdjCount = new int[cap];
+            RowIndex[] newIndex = new RowIndex[cap];
+            int[][] newInAdj = new int[cap][];
+            int[] newInCount = new int[cap];
+            for (int i = 0; i < userCount; i++) {
+                newUsers[i] = users[i];
+                newAdj[i] = adj[i];
+                newAdjCount[i] = adjCount[i];
+                newIndex[i] = index[i];
+                newInAdj[i] = inAdj[i];
+                newInCount[i] = inCount[i];
+            }
+            users = newUsers;
+            adj = newAdj;
+            adjCount = newAdjCount;
+            index = newIndex;
+            inAdj = newInAdj;
+            inCount = newInCount;
+        }
+    }
+
+    /**
+     * Copia una fila al tamaño justo (minimo 1 pa que se pueda seguir duplicando)
+     */
+    private static int[] trimRow(int[] row, int count) {
+        int len = Math.max(1, count);
+        if (row.length == len) return row;
+        int[] out = new int[len];
+        for (int i = 0; i < count; i++) out[i] = row[i];
+        return out;
     }
 
     /**
@@ -129,6 +648,7 @@ public class DirectedGraph {
      * 
      * @return el numero de users
      */
+    @Override
     public int getVertexCount() { return userCount; }
 
     /**
@@ -137,6 +657,7 @@ public class DirectedGraph {
      * @param index el indice del user
      * @return el nombre del user
      */
+    @Override
     public String getUserByIndex(int index) { return users[index]; }
 
     /**
@@ -152,40 +673,316 @@ public class DirectedGraph {
         return out;
     }
 
+    /**
+     * Copia los vecinos de un user a un array del que llama
+     * 
+     * @param v el indice del user
+     * @param dst donde copiar
+     * @param off desde que posicion de dst
+     * @return cuantos vecinos se copiaron
+     */
+    @Override
+    public int copyNeighbors(int v, int[] dst, int off) {
+        System.arraycopy(adj[v], 0, dst, off, adjCount[v]);
+        return adjCount[v];
+    }
+
     /**
      * Devuelve el array interno de vecinos de un user
      * Mas eficiente pa recorrer pero puede tener espacios vacios
      * 
      * @param v el indice del user
      * @return el array interno de vecinos
+     * @deprecated expone la fila mutable del grafo; usar forEachNeighbor,
+     *             cursor o getNeighbor pa recorrer y copyNeighbors pa copiar
      */
+    @Deprecated
     public int[] getNeighborsBuffer(int v) { return adj[v]; }
 
+    /**
+     * Devuelve un vecino de un user por su posicion en la fila
+     * Pa recorridos que guardan por donde iban y siguen despues
+     * 
+     * @param v el indice del user
+     * @param i la posicion, de 0 a getNeighborsCount(v) - 1
+     * @return el indice del vecino
+     */
+    public int getNeighbor(int v, int i) {
+        if (i >= adjCount[v]) throw new IndexOutOfBoundsException("Neighbor " + i + " of " + adjCount[v]);
+        return adj[v][i];
+    }
+
+    /**
+     * Pasa cada vecino de un user, sin copiar la fila
+     * La accion no debe cambiar el grafo
+     * 
+     * @param v el indice del user
+     * @param action lo que se hace con cada vecino
+     */
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        int[] row = adj[v];
+        int cnt = adjCount[v];
+        for (int i = 0; i < cnt; i++) action.accept(row[i]);
+    }
+
+    /**
+     * Crea un cursor sobre las filas del grafo
+     * 
+     * @return un cursor nuevo
+     */
+    @Override
+    public NeighborCursor cursor() {
+        return new RowCursor(false);
+    }
+
+    /**
+     * Crea un cursor sobre los seguidores de cada user (las relaciones al reves)
+     * 
+     * @return un cursor nuevo
+     */
+    public NeighborCursor inCursor() {
+        return new RowCursor(true);
+    }
+
+    /**
+     * Cursor sobre la fila interna de un user, de ida o de vuelta
+     */
+    private final class RowCursor implements NeighborCursor {
+        private final boolean incoming;
+        private int[] row;
+        private int pos;
+        private int end;
+
+        RowCursor(boolean incoming) {
+            this.incoming = incoming;
+        }
+
+        @Override
+        public void moveTo(int v) {
+            row = incoming ? inAdj[v] : adj[v];
+            pos = 0;
+            end = incoming ? inCount[v] : adjCount[v];
+        }
+
+        @Override
+        public boolean hasNext() { return pos < end; }
+
+        @Override
+        public int nextInt() {
+            if (pos >= end) throw new NoSuchElementException();
+            return row[pos++];
+        }
+
+        @Override
+        public long position() { return pos; }
+
+        @Override
+        public void seek(int v, long position) {
+            moveTo(v);
+            pos = (int) position;
+        }
+    }
+
+    /**
+     * Cuantas relaciones hay en el grafo
+     * 
+     * @return el numero de relaciones
+     */
+    @Override
+    public long getEdgeCount() { return edgeCount; }
+
     /**
      * Cuantos vecinos tiene un user
      * 
      * @param v el indice del user
      * @return cuantos users sigue
      */
+    @Override
     public int getNeighborsCount(int v) { return adjCount[v]; }
 
+    /**
+     * Devuelve el array interno de seguidores de un user (quien lo sigue)
+     * Puede tener espacios vacios al final, despues de getInNeighborsCount(v)
+     * 
+     * @param v el indice del user
+     * @return el array interno de seguidores
+     */
+    public int[] getInNeighborsBuffer(int v) { return inAdj[v]; }
+
+    /**
+     * Cuantos seguidores tiene un user
+     * 
+     * @param v el indice del user
+     * @return cuantos users lo siguen
+     */
+    public int getInNeighborsCount(int v) { return inCount[v]; }
+
+    /**
+     * Compacta el grafo en una foto CSR inmutable pa los algoritmos
+     * Los cambios que se hagan despues al grafo no se ven en la foto
+     * 
+     * @return la foto CSR del grafo
+     */
+    public CsrGraph freeze() { return CsrGraph.from(this); }
+
     /**
      * Convierte el grafo a string pa mostrarlo
      * Formato: "indice [user] -> [vecinos]"
+     * Pa grafos grandes conviene writeTo, que no arma todo en memoria
      * 
      * @return string con todo el grafo
      */
     @Override
     public String toString() {
-        String s = "";
-        for (int v = 0; v < userCount; v++) {
-            s += v + " [" + users[v] + "] -> [";
-            for (int i = 0; i < adjCount[v]; i++) {
-                s += adj[v][i];
-                if (i + 1 < adjCount[v]) s += ", ";
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder nunca tira
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribe el grafo completo en el mismo formato que toString
+     * 
+     * @param out donde escribir (un Writer, un StringBuilder...)
+     * @throws IOException si falla la escritura
+     */
+    public void writeTo(Appendable out) throws IOException {
+        writeTo(out, 0, userCount);
+    }
+
+    /**
+     * Escribe solo una pagina de filas del grafo, una por linea
+     * 
+     * @param out donde escribir
+     * @param offset primer user a escribir
+     * @param limit cuantos users escribir como maximo
+     * @throws IOException si falla la escritura
+     */
+    public void writeTo(Appendable out, int offset, int limit) throws IOException {
+        int end = (int) Math.min((long) Math.max(offset, 0) + Math.max(limit, 0), userCount);
+        for (int v = Math.max(offset, 0); v < end; v++) {
+            writeRow(out, v, Integer.MAX_VALUE);
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Escribe la fila de un user: "indice [user] -> [vecinos]", sin fin de linea
+     * Si tiene mas de maxNeighbors vecinos se cortan con "... (+N more)"
+     * 
+     * @param out donde escribir
+     * @param v el indice del user
+     * @param maxNeighbors cuantos vecinos escribir como maximo
+     * @throws IOException si falla la escritura
+     */
+    public void writeRow(Appendable out, int v, int maxNeighbors) throws IOException {
+        out.append(Integer.toString(v)).append(" [").append(users[v]).append("] -> [");
+        int shown = Math.min(adjCount[v], Math.max(maxNeighbors, 0));
+        int[] row = adj[v];
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) out.append(", ");
+            out.append(Integer.toString(row[i]));
+        }
+        if (shown < adjCount[v]) {
+            out.append(shown > 0 ? ", ... (+" : "... (+").append(Integer.toString(adjCount[v] - shown)).append(" more)");
+        }
+        out.append(']');
+    }
+
+    /**
+     * Arma un grafo de una vez: junta los users y los pares de relaciones
+     * y al final los pasa todos juntos por addRelations, que ordena y quita
+     * repetidos en una pasada en vez de revisar la fila por cada relacion
+     * 
+     * Pensado pa los cargadores y pa procesos que generan muchas relaciones
+     * Despues de build() el builder ya no se puede usar
+     * 
+     * @version 1.0
+     */
+    public static class Builder {
+
+        private DirectedGraph graph = new DirectedGraph();
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int count;
+
+        /**
+         * Agrega un user si no existe
+         * 
+         * @param name el nombre del user
+         * @return el indice del user (nuevo o el que ya tenia)
+         */
+        public int addUser(String name) {
+            check();
+            graph.addUser(name);
+            return graph.indexOf(name);
+        }
+
+        /**
+         * Anota una relacion por nombre, se agrega recien en build()
+         * 
+         * @param fromName el user que sigue
+         * @param toName el user que es seguido
+         * @return false si alguno de los dos users no existe
+         */
+        public boolean addRelation(String fromName, String toName) {
+            check();
+            int iFrom = graph.indexOf(fromName);
+            int iTo = graph.indexOf(toName);
+            if (iFrom == -1 || iTo == -1) return false;
+            addRelation(iFrom, iTo);
+            return true;
+        }
+
+        /**
+         * Anota una relacion por indices, se agrega recien en build()
+         * Los repetidos se pueden anotar sin problema, build() los descarta
+         * 
+         * @param iFrom el indice del user que sigue
+         * @param iTo el indice del user que es seguido
+         */
+        public void addRelation(int iFrom, int iTo) {
+            check();
+            if (iFrom < 0 || iFrom >= graph.userCount || iTo < 0 || iTo >= graph.userCount) {
+                throw new IndexOutOfBoundsException("User index out of range: " + iFrom + " -> " + iTo);
             }
-            s += "]\n";
+            if (count == from.length) {
+                from = Arrays.copyOf(from, count * 2);
+                to = Arrays.copyOf(to, count * 2);
+            }
+            from[count] = iFrom;
+            to[count] = iTo;
+            count++;
+        }
+
+        /**
+         * Cuantas relaciones hay anotadas, contando repetidas
+         * 
+         * @return el numero de pares anotados
+         */
+        public int getPendingRelations() { return count; }
+
+        /**
+         * Pasa todas las relaciones al grafo y lo devuelve
+         * 
+         * @return el grafo armado
+         */
+        public DirectedGraph build() {
+            check();
+            DirectedGraph g = graph;
+            g.addRelations(from, to, count);
+            graph = null;
+            from = null;
+            to = null;
+            return g;
+        }
+
+        private void check() {
+            if (graph == null) throw new IllegalStateException("Builder already built.");
         }
-        return s;
     }
-}
\ No newline at end of file
+}
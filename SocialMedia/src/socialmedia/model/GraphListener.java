@@ -0,0 +1,60 @@
+package socialmedia.model;
+
+/**
+ * Se entera de los cambios que se le hacen a un DirectedGraph
+ * Se llama despues de que el cambio ya esta hecho, asi el grafo ya esta al dia
+ * Todos los metodos tienen cuerpo vacio pa implementar solo los que hagan falta
+ *
+ * @version 1.0
+ */
+public interface GraphListener {
+
+    /**
+     * Se agrego un user nuevo
+     *
+     * @param v el indice del user nuevo
+     */
+    default void userAdded(int v) { }
+
+    /**
+     * Se agrego una relacion que no existia
+     *
+     * @param from el indice del user que sigue
+     * @param to el indice del user seguido
+     */
+    default void relationAdded(int from, int to) { }
+
+    /**
+     * Empieza un lote de relaciones nuevas (addRelations)
+     * Igual llega relationAdded por cada una, justo despues de escribirla,
+     * y al final batchFinished. Sirve pa juntar el trabajo de todo el lote
+     *
+     * @param count cuantas relaciones nuevas trae el lote
+     */
+    default void batchStarted(int count) { }
+
+    /**
+     * Termino el lote avisado con batchStarted; todas sus relaciones ya estan en el grafo
+     */
+    default void batchFinished() { }
+
+    /**
+     * Se quito una relacion
+     *
+     * @param from el indice del user que seguia
+     * @param to el indice del user que era seguido
+     */
+    default void relationRemoved(int from, int to) { }
+
+    /**
+     * Se quito un user junto con todas sus relaciones
+     * Las relaciones que se van con el no se avisan una por una
+     * Si movedFrom es distinto de index, el user que estaba en movedFrom
+     * ahora vive en index (los indices se mantienen densos)
+     *
+     * @param name el nombre del user quitado
+     * @param index el indice que tenia el user quitado
+     * @param movedFrom el indice viejo del user que paso a ocupar index
+     */
+    default void userRemoved(String name, int index, int movedFrom) { }
+}
@@ -0,0 +1,73 @@
+package socialmedia.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Lo minimo pa leer un grafo, sin importar donde estan guardadas las relaciones
+ * Los algoritmos y el guardado de archivos trabajan contra esto, asi da igual
+ * si el grafo es un DirectedGraph, una foto CSR, una comprimida o una fuera del heap
+ *
+ * Los users van de 0 a getVertexCount() - 1. Pa recorrer vecinos en ciclos
+ * calientes estan forEachNeighbor y cursor, que no copian ni crean arrays;
+ * copyNeighbors es pa cuando hace falta la fila entera en un array propio
+ *
+ * @version 1.0
+ */
+public interface GraphView {
+
+    /**
+     * Cuantos users hay
+     *
+     * @return el numero de users
+     */
+    int getVertexCount();
+
+    /**
+     * Devuelve el nombre de un user por su indice
+     *
+     * @param index el indice del user
+     * @return el nombre del user
+     */
+    String getUserByIndex(int index);
+
+    /**
+     * Cuantas relaciones hay en total
+     *
+     * @return el numero de aristas
+     */
+    long getEdgeCount();
+
+    /**
+     * Cuantos vecinos tiene un user
+     *
+     * @param v el indice del user
+     * @return cuantos users sigue
+     */
+    int getNeighborsCount(int v);
+
+    /**
+     * Copia los vecinos de un user a un array del que llama
+     * Tiene que caber getNeighborsCount(v) desde off
+     *
+     * @param v el indice del user
+     * @param dst donde copiar
+     * @param off desde que posicion de dst
+     * @return cuantos vecinos se copiaron
+     */
+    int copyNeighbors(int v, int[] dst, int off);
+
+    /**
+     * Pasa cada vecino de un user, sin copiar la fila
+     *
+     * @param v el indice del user
+     * @param action lo que se hace con cada vecino
+     */
+    void forEachNeighbor(int v, IntConsumer action);
+
+    /**
+     * Crea un cursor pa recorrer vecinos, reusable con moveTo
+     *
+     * @return un cursor nuevo, todavia sin user
+     */
+    NeighborCursor cursor();
+}
@@ -0,0 +1,58 @@
+package socialmedia.model;
+
+/**
+ * Recorre los vecinos de un user sin copiarlos ni crear objetos
+ * El mismo cursor se reusa pa todos los users con moveTo, asi los ciclos
+ * calientes no piden memoria; sale de GraphView.cursor()
+ *
+ * Uso: c.moveTo(v); while (c.hasNext()) { int w = c.nextInt(); ... }
+ *
+ * Un DFS con pila explicita no necesita un cursor por nivel: guarda
+ * position() de cada nivel y vuelve con seek, asi un solo cursor sirve pa
+ * todo el recorrido sin importar como esten guardadas las filas
+ *
+ * Si el grafo cambia mientras se recorre, lo que devuelve no esta definido
+ *
+ * @version 1.0
+ */
+public interface NeighborCursor {
+
+    /**
+     * Se para al principio de los vecinos de un user
+     *
+     * @param v el indice del user
+     */
+    void moveTo(int v);
+
+    /**
+     * Si quedan vecinos por recorrer
+     *
+     * @return true si nextInt tiene algo que devolver
+     */
+    boolean hasNext();
+
+    /**
+     * Devuelve el siguiente vecino
+     *
+     * @return el indice del vecino
+     * @throws java.util.NoSuchElementException si ya no quedan
+     */
+    int nextInt();
+
+    /**
+     * Donde va el cursor dentro de la fila actual, pa volver despues con seek
+     * Solo sirve pa este mismo grafo y la misma fila
+     *
+     * @return la posicion
+     */
+    long position();
+
+    /**
+     * Se para en la fila de un user en una posicion que dio position()
+     * seek(v, position()) recien despues de moveTo(v) es lo mismo que moveTo(v)
+     *
+     * @param v el indice del user
+     * @param position lo que devolvio position() estando en la fila de v
+     */
+    void seek(int v, long position);
+}
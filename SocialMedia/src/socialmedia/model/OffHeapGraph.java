@@ -0,0 +1,227 @@
+package socialmedia.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Grafo de solo lectura guardado fuera del heap
+ * Los offsets CSR, los targets y la tabla de nombres viven en ByteBuffers
+ * directos o mapeados de un archivo, asi el GC no tiene que recorrer
+ * millones de filas int[] y Strings sueltos
+ *
+ * Usa las mismas secciones que el formato binario (BinaryGraphFormat):
+ * inicio de cada nombre, nombres en UTF-8 seguidos, offsets y targets.
+ * Con BinaryGraphFormat.map se usa el archivo mismo, sin copiar nada
+ *
+ * Los targets van en partes de CHUNK_INTS ints porque un buffer no pasa
+ * de 2 GB. Los nombres se decodifican cada vez que se piden, pasando por un
+ * buffer de bytes por hilo que se reusa: lo unico que se crea es el String
+ *
+ * @version 1.0
+ */
+public final class OffHeapGraph implements GraphView {
+
+    /** Cuantos ints tiene cada parte de los targets (la ultima puede tener menos) */
+    public static final int CHUNK_INTS = 1 << 28;
+    private static final int CHUNK_BITS = 28;
+
+    private final int n;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final IntBuffer offsets;
+    private final IntBuffer[] targets;
+    // bytes del nombre que se esta decodificando, uno por hilo pa no pedir un array por nombre
+    private final ThreadLocal<byte[]> nameBuffer = ThreadLocal.withInitial(() -> new byte[64]);
+
+    private OffHeapGraph(IntBuffer nameOffsets, ByteBuffer names, IntBuffer offsets, IntBuffer[] targets) {
+        this.n = offsets.limit() - 1;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Arma el grafo sobre buffers que ya tienen las secciones
+     * Los buffers no se copian; no se deben modificar despues
+     *
+     * @param nameOffsets inicio de cada nombre en names (n + 1)
+     * @param names los nombres en UTF-8 seguidos
+     * @param offsets inicio de los vecinos de cada user (n + 1)
+     * @param targets los vecinos, en partes de CHUNK_INTS ints
+     * @return el grafo
+     * @throws IllegalArgumentException si las secciones no cuadran
+     */
+    public static OffHeapGraph wrap(IntBuffer nameOffsets, ByteBuffer names, IntBuffer offsets, IntBuffer[] targets) {
+        int n = offsets.limit() - 1;
+        long m = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (i < targets.length - 1 && targets[i].limit() != CHUNK_INTS) {
+                throw new IllegalArgumentException("Target chunk " + i + " is not full.");
+            }
+            m += targets[i].limit();
+        }
+        if (n < 0 || nameOffsets.limit() != n + 1 || nameOffsets.get(n) > names.limit()
+                || offsets.get(0) != 0 || offsets.get(n) != m) {
+            throw new IllegalArgumentException("Inconsistent off-heap graph sections.");
+        }
+        return new OffHeapGraph(nameOffsets, names, offsets, targets);
+    }
+
+    /**
+     * Copia cualquier grafo a buffers directos
+     *
+     * @param g el grafo a copiar
+     * @return la copia fuera del heap
+     * @throws IllegalStateException si hay demasiadas relaciones o nombres
+     */
+    public static OffHeapGraph copyOf(GraphView g) {
+        int n = g.getVertexCount();
+        IntBuffer nameOff = direct(4L * (n + 1)).asIntBuffer();
+        IntBuffer off = direct(4L * (n + 1)).asIntBuffer();
+        long nameBytes = 0;
+        long m = 0;
+        for (int v = 0; v < n; v++) {
+            nameOff.put(v, (int) nameBytes);
+            off.put(v, (int) m);
+            nameBytes += g.getUserByIndex(v).getBytes(StandardCharsets.UTF_8).length;
+            m += g.getNeighborsCount(v);
+            if (nameBytes > Integer.MAX_VALUE || m > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Graph too large for an off-heap copy.");
+            }
+        }
+        nameOff.put(n, (int) nameBytes);
+        off.put(n, (int) m);
+
+        ByteBuffer table = direct(nameBytes);
+        for (int v = 0; v < n; v++) table.put(g.getUserByIndex(v).getBytes(StandardCharsets.UTF_8));
+        table.clear();
+
+        IntBuffer[] parts = new IntBuffer[(int) ((m + CHUNK_INTS - 1) >>> CHUNK_BITS)];
+        for (int i = 0; i < parts.length; i++) {
+            long len = Math.min(CHUNK_INTS, m - ((long) i << CHUNK_BITS));
+            parts[i] = direct(4L * len).asIntBuffer();
+        }
+        int[] row = new int[16];
+        long pos = 0;
+        for (int v = 0; v < n; v++) {
+            int cnt = g.getNeighborsCount(v);
+            if (row.length < cnt) row = new int[Math.max(cnt, row.length * 2)];
+            g.copyNeighbors(v, row, 0);
+            int done = 0;
+            while (done < cnt) {
+                IntBuffer part = parts[(int) (pos >>> CHUNK_BITS)];
+                int at = (int) (pos & (CHUNK_INTS - 1));
+                int len = Math.min(cnt - done, part.limit() - at);
+                part.put(at, row, done, len);
+                done += len;
+                pos += len;
+            }
+        }
+        return new OffHeapGraph(nameOff, table, off, parts);
+    }
+
+    private static ByteBuffer direct(long bytes) {
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public int getVertexCount() { return n; }
+
+    /**
+     * Cuantas relaciones hay en total
+     *
+     * @return el numero de aristas
+     */
+    @Override
+    public long getEdgeCount() { return Integer.toUnsignedLong(offsets.get(n)); }
+
+    /**
+     * Decodifica el nombre de un user desde la tabla
+     *
+     * @param index el indice del user
+     * @return el nombre del user
+     */
+    @Override
+    public String getUserByIndex(int index) {
+        int start = nameOffsets.get(index);
+        int len = nameOffsets.get(index + 1) - start;
+        byte[] b = nameBuffer.get();
+        if (b.length < len) {
+            b = new byte[Math.max(len, b.length * 2)];
+            nameBuffer.set(b);
+        }
+        names.get(start, b, 0, len);
+        return new String(b, 0, len, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getNeighborsCount(int v) { return offsets.get(v + 1) - offsets.get(v); }
+
+    @Override
+    public int copyNeighbors(int v, int[] dst, int off) {
+        long pos = Integer.toUnsignedLong(offsets.get(v));
+        int cnt = offsets.get(v + 1) - offsets.get(v);
+        int done = 0;
+        while (done < cnt) {
+            IntBuffer part = targets[(int) (pos >>> CHUNK_BITS)];
+            int at = (int) (pos & (CHUNK_INTS - 1));
+            int len = Math.min(cnt - done, part.limit() - at);
+            part.get(at, dst, off + done, len);
+            done += len;
+            pos += len;
+        }
+        return cnt;
+    }
+
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        long pos = Integer.toUnsignedLong(offsets.get(v));
+        long end = Integer.toUnsignedLong(offsets.get(v + 1));
+        while (pos < end) {
+            IntBuffer part = targets[(int) (pos >>> CHUNK_BITS)];
+            int at = (int) (pos & (CHUNK_INTS - 1));
+            int stop = (int) Math.min(part.limit(), at + (end - pos));
+            for (int i = at; i < stop; i++) action.accept(part.get(i));
+            pos += stop - at;
+        }
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private long pos;
+            private long end;
+
+            @Override
+            public void moveTo(int v) {
+                pos = Integer.toUnsignedLong(offsets.get(v));
+                end = Integer.toUnsignedLong(offsets.get(v + 1));
+            }
+
+            @Override
+            public boolean hasNext() { return pos < end; }
+
+            @Override
+            public int nextInt() {
+                if (pos >= end) throw new NoSuchElementException();
+                int w = targets[(int) (pos >>> CHUNK_BITS)].get((int) (pos & (CHUNK_INTS - 1)));
+                pos++;
+                return w;
+            }
+
+            @Override
+            public long position() { return pos; }
+
+            @Override
+            public void seek(int v, long position) {
+                pos = position;
+                end = Integer.toUnsignedLong(offsets.get(v + 1));
+            }
+        };
+    }
+}
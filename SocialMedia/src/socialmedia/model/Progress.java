@@ -0,0 +1,63 @@
+package socialmedia.model;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Avance de una operacion larga (cargar un archivo, correr un SCC)
+ * y la forma de pedirle que pare
+ *
+ * El que hace el trabajo llama worked cada tanto y checkCancelled en los
+ * mismos puntos; si se pidio cancelar, la operacion termina con una
+ * CancellationException y no deja nada a medias visible pa el que llamo.
+ * Los algoritmos paralelos pueden llamar desde varios hilos a la vez
+ *
+ * @version 1.0
+ */
+public interface Progress {
+
+    /** No muestra nada y nunca cancela */
+    Progress NONE = new Progress() {
+        @Override
+        public void worked(long done, long total) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * Cuanto va hecho
+     *
+     * @param done unidades terminadas (bytes, users...)
+     * @param total unidades en total, 0 si no se sabe
+     */
+    void worked(long done, long total);
+
+    /**
+     * Si alguien pidio cancelar
+     *
+     * @return true si hay que parar
+     */
+    boolean isCancelled();
+
+    /**
+     * Corta la operacion si se pidio cancelar
+     *
+     * @throws CancellationException si se pidio cancelar
+     */
+    default void checkCancelled() {
+        if (isCancelled()) throw new CancellationException("Operation cancelled.");
+    }
+
+    /**
+     * Avisa algo que no corta la operacion pero que el que llamo deberia saber
+     * (por ejemplo relaciones de un archivo con users que no existen)
+     * Por defecto no hace nada; puede llegar desde el hilo que hace el trabajo
+     *
+     * @param message el aviso
+     */
+    default void warn(String message) {
+    }
+}
@@ -0,0 +1,210 @@
+package socialmedia.model;
+
+import java.util.Arrays;
+
+/**
+ * Indice al lado de una fila de vecinos grande de DirectedGraph, pa saber si
+ * un user ya esta en la fila sin recorrerla entera
+ *
+ * La fila sigue guardando los vecinos en orden de llegada (ese orden se ve al
+ * mostrar y al guardar el grafo), el indice solo contesta si un valor esta:
+ * - filas chicas (menos de SORTED_MIN): no llevan indice, se recorren
+ * - filas medianas: copia ordenada, busqueda binaria O(log d)
+ * - filas grandes (desde HASHED_MIN): tabla hash de ints con sondeo lineal, O(1)
+ *
+ * Cambia solo de tipo al crecer la fila. Al achicarse baja con margen
+ * (a la mitad del umbral) pa no estar cambiando si se agrega y se quita
+ * justo en el borde
+ *
+ * @version 1.0
+ */
+abstract class RowIndex {
+
+    /** Desde cuantos vecinos la fila lleva indice */
+    static final int SORTED_MIN = 32;
+    /** Desde cuantos vecinos el indice es una tabla hash */
+    static final int HASHED_MIN = 1024;
+
+    /**
+     * Arma el indice que le toca a una fila segun su tamaño
+     *
+     * @param row la fila
+     * @param count cuantos vecinos validos tiene
+     * @return el indice
+     */
+    static RowIndex of(int[] row, int count) {
+        return count >= HASHED_MIN ? new Hashed(row, count) : new Sorted(row, count);
+    }
+
+    /**
+     * Dice si un valor esta en la fila
+     *
+     * @param value el indice del user
+     * @return true si esta
+     */
+    abstract boolean contains(int value);
+
+    /**
+     * Anota un valor que no estaba
+     *
+     * @param value el indice del user
+     * @return el indice a usar desde ahora (puede ser otro si la fila crecio)
+     */
+    abstract RowIndex add(int value);
+
+    /**
+     * Borra un valor; si no estaba no hace nada
+     *
+     * @param value el indice del user
+     * @return el indice a usar desde ahora, o null si la fila ya no necesita
+     */
+    abstract RowIndex remove(int value);
+
+    /**
+     * Cuantos valores tiene
+     *
+     * @return el tamaño de la fila
+     */
+    abstract int size();
+
+    /**
+     * Copia ordenada de la fila, con busqueda binaria
+     */
+    static final class Sorted extends RowIndex {
+        private int[] values;
+        private int size;
+
+        Sorted(int[] row, int count) {
+            values = Arrays.copyOf(row, Math.max(count, 4));
+            Arrays.sort(values, 0, count);
+            size = count;
+        }
+
+        @Override
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        RowIndex add(int value) {
+            if (size + 1 >= HASHED_MIN) {
+                Hashed h = new Hashed(values, size);
+                return h.add(value);
+            }
+            int at = -Arrays.binarySearch(values, 0, size, value) - 1;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, at, values, at + 1, size - at);
+            values[at] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        RowIndex remove(int value) {
+            int at = Arrays.binarySearch(values, 0, size, value);
+            if (at < 0) return this;
+            System.arraycopy(values, at + 1, values, at, size - at - 1);
+            size--;
+            return size < SORTED_MIN / 2 ? null : this;
+        }
+
+        @Override
+        int size() { return size; }
+    }
+
+    /**
+     * Tabla hash abierta de ints: a lo sumo medio llena, -1 es hueco
+     * Al borrar se corren los siguientes hacia atras, asi no quedan lapidas
+     */
+    static final class Hashed extends RowIndex {
+        private static final int EMPTY = -1;
+
+        private int[] table;
+        private int shift;
+        private int size;
+
+        Hashed(int[] values, int count) {
+            int cap = 16;
+            while (cap < count * 2) cap <<= 1;
+            allocate(cap);
+            for (int i = 0; i < count; i++) insert(values[i]);
+        }
+
+        private void allocate(int cap) {
+            table = new int[cap];
+            Arrays.fill(table, EMPTY);
+            shift = 32 - Integer.numberOfTrailingZeros(cap);
+            size = 0;
+        }
+
+        private int home(int value) {
+            return (value * 0x9E3779B9) >>> shift;
+        }
+
+        private void insert(int value) {
+            int mask = table.length - 1;
+            int i = home(value);
+            while (table[i] != EMPTY) {
+                if (table[i] == value) return;
+                i = (i + 1) & mask;
+            }
+            table[i] = value;
+            size++;
+        }
+
+        @Override
+        boolean contains(int value) {
+            int mask = table.length - 1;
+            for (int i = home(value); ; i = (i + 1) & mask) {
+                int t = table[i];
+                if (t == value) return true;
+                if (t == EMPTY) return false;
+            }
+        }
+
+        @Override
+        RowIndex add(int value) {
+            if ((size + 1) * 2 > table.length) {
+                int[] old = table;
+                allocate(old.length * 2);
+                for (int t : old) if (t != EMPTY) insert(t);
+            }
+            insert(value);
+            return this;
+        }
+
+        @Override
+        RowIndex remove(int value) {
+            int mask = table.length - 1;
+            int i = home(value);
+            while (table[i] != value) {
+                if (table[i] == EMPTY) return this;
+                i = (i + 1) & mask;
+            }
+            // los que estan despues en la misma corrida se corren al hueco
+            // si su lugar natural no queda entre el hueco y donde estan
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                int t = table[j];
+                if (t == EMPTY) break;
+                int k = home(t);
+                boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+                if (!stays) {
+                    table[i] = t;
+                    i = j;
+                }
+            }
+            table[i] = EMPTY;
+            size--;
+            if (size >= HASHED_MIN / 2) return this;
+            int[] values = new int[size];
+            int n = 0;
+            for (int t : table) if (t != EMPTY) values[n++] = t;
+            return new Sorted(values, n);
+        }
+
+        @Override
+        int size() { return size; }
+    }
+}
@@ -0,0 +1,148 @@
+package socialmedia.model;
+
+/**
+ * Diccionario String -> int con direccionamiento abierto (linear probing)
+ * Se usa pa encontrar el indice de un user por su nombre en O(1)
+ * Guarda los valores como int primitivos, sin Integer ni nodos por entrada
+ *
+ * @version 1.0
+ */
+public class StringIntMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // keys[i] == null significa slot libre
+    private String[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructor con capacidad por defecto
+     */
+    public StringIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor con una capacidad esperada de entradas
+     * La tabla se hace del doble pa mantener el factor de carga bajo
+     *
+     * @param expected cuantas entradas se esperan
+     */
+    public StringIntMap(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap < expected * 2) cap <<= 1;
+        keys = new String[cap];
+        values = new int[cap];
+        mask = cap - 1;
+        size = 0;
+    }
+
+    /**
+     * Mezcla los bits del hashCode pa que los slots queden bien repartidos
+     *
+     * @param key la llave
+     * @return el slot inicial de la llave
+     */
+    private int slot(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Busca el valor de una llave
+     *
+     * @param key la llave a buscar
+     * @return el valor o -1 si no existe
+     */
+    public int get(String key) {
+        int i = slot(key);
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) return values[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Guarda o reemplaza el valor de una llave
+     *
+     * @param key la llave, no puede ser null
+     * @param value el valor a guardar
+     */
+    public void put(String key, int value) {
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        int i = slot(key);
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) { values[i] = value; return; }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Quita una llave del mapa
+     * Corre pa atras las entradas siguientes pa no dejar huecos en las cadenas de probing
+     *
+     * @param key la llave a quitar
+     * @return el valor que tenia o -1 si no existia
+     */
+    public int remove(String key) {
+        int i = slot(key);
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) break;
+            i = (i + 1) & mask;
+        }
+        if (k == null) return -1;
+        int old = values[i];
+        int hole = i;
+        int j = (i + 1) & mask;
+        while ((k = keys[j]) != null) {
+            int home = slot(k);
+            // la entrada en j puede ir al hueco si su slot inicial no esta entre hole y j
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = null;
+        size--;
+        return old;
+    }
+
+    /**
+     * Cuantas entradas tiene el mapa
+     *
+     * @return el numero de entradas
+     */
+    public int size() { return size; }
+
+    /**
+     * Hace la tabla mas grande y vuelve a meter todas las entradas
+     *
+     * @param newCap la nueva capacidad (potencia de 2)
+     */
+    private void rehash(int newCap) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[newCap];
+        values = new int[newCap];
+        mask = newCap - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            String k = oldKeys[j];
+            if (k == null) continue;
+            int i = slot(k);
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+}
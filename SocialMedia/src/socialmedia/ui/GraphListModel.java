@@ -0,0 +1,76 @@
+package socialmedia.ui;
+
+import socialmedia.model.DirectedGraph;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.swing.AbstractListModel;
+
+/**
+ * Modelo de lista que muestra el grafo fila por fila
+ * Cada fila se arma recien cuando la JList la va a pintar, asi solo se paga
+ * por las que se ven y no por el grafo entero como con el JTextArea
+ *
+ * @version 1.0
+ */
+@SuppressWarnings("serial") // no se serializa, vive solo en la ventana
+class GraphListModel extends AbstractListModel<String> {
+
+    // cuantos vecinos se muestran por fila, los users con millones no caben igual
+    static final int MAX_NEIGHBORS = 200;
+
+    private DirectedGraph graph;
+    private int size;
+
+    /**
+     * Cambia el grafo que se muestra
+     *
+     * @param g el grafo nuevo, puede ser null
+     */
+    void setGraph(DirectedGraph g) {
+        graph = g;
+        refresh();
+    }
+
+    /**
+     * Avisa a la lista que el grafo cambio
+     * Solo dispara eventos, las filas se vuelven a armar al pintarse
+     */
+    void refresh() {
+        int old = size;
+        size = graph == null ? 0 : graph.getVertexCount();
+        if (size < old) fireIntervalRemoved(this, size, old - 1);
+        if (size > old) fireIntervalAdded(this, old, size - 1);
+        if (Math.min(size, old) > 0) fireContentsChanged(this, 0, Math.min(size, old) - 1);
+    }
+
+    /**
+     * La fila mas ancha probable, pa que la lista no mida todas las filas
+     * Usa el user con mas vecinos, que se encuentra solo mirando los contadores
+     *
+     * @return el texto de esa fila o null si no hay grafo
+     */
+    String prototypeRow() {
+        if (size == 0) return null;
+        int widest = 0;
+        for (int v = 1; v < size; v++) {
+            if (graph.getNeighborsCount(v) > graph.getNeighborsCount(widest)) widest = v;
+        }
+        return getElementAt(widest);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            graph.writeRow(sb, index, MAX_NEIGHBORS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package socialmedia.ui;
+
+import socialmedia.model.Progress;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+/**
+ * Trabajo largo de la ventana (cargar, calcular SCC, armar la vista) que corre
+ * fuera del hilo de Swing. Se pasa a si mismo como Progress a los cargadores y
+ * algoritmos, asi la barra avanza y el boton Cancel los corta de verdad
+ *
+ * El avance sale por la propiedad "progress" (0 a 100) y el nombre de la fase
+ * por la propiedad "phase". succeeded, failed y cancelled corren en el hilo de
+ * Swing; el aviso de terminado llega recien cuando el hilo de fondo ya salio,
+ * aunque se haya cancelado antes
+ *
+ * Si se cancela pero work igual termina (no llego a revisar el Cancel), el
+ * resultado no llega a succeeded: se le pasa a discarded, pa que suelte lo
+ * que haya agarrado (listeners enganchados, archivos abiertos)
+ *
+ * @param <T> lo que produce el trabajo
+ * @version 1.0
+ */
+abstract class GraphTask<T> extends SwingWorker<T, Void> implements Progress {
+
+    private Runnable onFinish;
+    private volatile T result; // lo que devolvio work, por si se cancela despues
+    private boolean finished;  // el hilo de fondo ya salio (solo en el hilo de Swing)
+
+    /**
+     * El trabajo en si, corre en un hilo de fondo
+     *
+     * @return el resultado
+     * @throws Exception si algo falla
+     */
+    protected abstract T work() throws Exception;
+
+    /**
+     * Recibe el resultado en el hilo de Swing
+     *
+     * @param result lo que devolvio work
+     */
+    protected abstract void succeeded(T result);
+
+    /**
+     * Se llama en el hilo de Swing si work tiro una excepcion
+     *
+     * @param error la causa
+     */
+    protected void failed(Throwable error) {
+    }
+
+    /**
+     * Se llama en el hilo de Swing si se cancelo
+     */
+    protected void cancelled() {
+    }
+
+    /**
+     * Se llama en el hilo de Swing si se cancelo pero work igual devolvio su
+     * resultado; puede llegar antes o despues de cancelled
+     *
+     * @param result lo que devolvio work y no se va a usar
+     */
+    protected void discarded(T result) {
+    }
+
+    /**
+     * Que hacer cuando el hilo de fondo termina, pase lo que pase
+     *
+     * @param r lo que se corre en el hilo de Swing
+     */
+    void whenFinished(Runnable r) {
+        onFinish = r;
+    }
+
+    /**
+     * Cambia el nombre de la fase y pone la barra en cero
+     *
+     * @param text la fase nueva
+     */
+    protected void phase(String text) {
+        setProgress(0);
+        firePropertyChange("phase", null, text);
+    }
+
+    @Override
+    public void worked(long done, long total) {
+        if (total > 0) setProgress((int) Math.min(100, Math.max(0, done * 100 / total)));
+    }
+
+    @Override
+    protected final T doInBackground() throws Exception {
+        try {
+            result = work();
+            return result;
+        } finally {
+            SwingUtilities.invokeLater(() -> {
+                finished = true;
+                // cancelado mientras work corria: done ya paso y no vio el resultado
+                if (isCancelled()) discard();
+                if (onFinish != null) onFinish.run();
+            });
+        }
+    }
+
+    @Override
+    protected final void done() {
+        if (isCancelled()) {
+            // si el hilo ya salio nadie mas va a mirar el resultado
+            if (finished) discard();
+            cancelled();
+            return;
+        }
+        result = null;
+        try {
+            succeeded(get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) cancelled();
+            else failed(e.getCause());
+        }
+    }
+
+    private void discard() {
+        T r = result;
+        result = null;
+        if (r != null) discarded(r);
+    }
+}
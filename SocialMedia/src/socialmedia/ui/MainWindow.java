@@ -7,20 +7,32 @@
 package socialmedia.ui;
 
 import socialmedia.model.DirectedGraph;
-import socialmedia.algorithms.Kosaraju;
+import socialmedia.model.NeighborCursor;
+import socialmedia.algorithms.Condensation;
+import socialmedia.algorithms.IncrementalScc;
 import socialmedia.algorithms.Kosaraju.SCCResult;
+import socialmedia.algorithms.QueryEngine;
+import socialmedia.algorithms.SccEngine;
 import socialmedia.io.FileSocialMedia;
+import socialmedia.io.GraphJournal;
+import socialmedia.metrics.Metrics;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import org.graphstream.graph.Edge;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.SingleGraph;
 
 public class MainWindow extends JFrame {
 
-    private JTextArea area;
+    private JTextArea area;        // log de mensajes y resultados
+    private JList<String> graphList;
+    private GraphListModel graphModel; // arma solo las filas visibles
+    private JLabel status;
     private DirectedGraph graph;
     private JButton btnLoad;
     private JButton btnSCC;
@@ -28,13 +40,32 @@ public class MainWindow extends JFrame {
     private JButton btnAddUser;
     private JButton btnAddRel;
     private JButton btnDelUser;
+    private JButton btnDelRel;
     private JButton btnShow;
+    private JButton btnShowComp;
+    private JButton btnReach;
+    private JButton btnMetrics;
+    private JComboBox<SccEngine> engineBox;
+    private JProgressBar progressBar;
+    private JButton btnCancel;
+    private IncrementalScc live; // componentes al dia con cada cambio del grafo
+    private SccEngine liveEngine; // el algoritmo con el que se armo live
+    private QueryEngine queries;  // alcance y distancias sobre graph, usa live
+    private GraphTask<?> task;    // lo que corre en segundo plano, null si nada
+    private GraphJournal journal; // bitacora del archivo abierto, null si no hay
     private boolean modified;
 
     public MainWindow() {
         setTitle("Social Media Graph");
         setSize(700, 480);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // al cerrar se pregunta si guardar: los cambios que no se guardan se tiran de la bitacora
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                exit();
+            }
+        });
         setLocationRelativeTo(null);
 
         btnLoad = new JButton("Load file");
@@ -43,32 +74,70 @@ public class MainWindow extends JFrame {
         btnAddUser = new JButton("Add user");
         btnAddRel = new JButton("Add relation");
         btnDelUser = new JButton("Delete user");
+        btnDelRel = new JButton("Delete relation");
         btnShow = new JButton("Show Graph");
+        btnShowComp = new JButton("Show component");
+        btnReach = new JButton("Reach query");
+        btnMetrics = new JButton("Metrics");
+        engineBox = new JComboBox<>(SccEngine.values());
+        engineBox.setToolTipText("SCC algorithm");
 
         // bttons
         JPanel top = new JPanel();
-        top.setLayout(new GridLayout(2, 4));  // Usamos GridLayout para mejorar el orden
+        top.setLayout(new GridLayout(4, 3));  // Usamos GridLayout para mejorar el orden
         top.add(btnLoad);      // Cargar archivo
         top.add(btnSCC);       // Encontrar CFC
         top.add(btnSave);      // Guardar archivo
         top.add(btnAddUser);   // Agregar usuario
         top.add(btnAddRel);    // Agregar relación
         top.add(btnDelUser);   // Eliminar usuario
+        top.add(btnDelRel);    // Eliminar relación
         top.add(btnShow);      // Mostrar grafo
+        top.add(btnShowComp);  // Mostrar un componente
+        top.add(btnReach);     // Alcance entre dos users
+        top.add(engineBox);    // Algoritmo de SCC
+        if (Metrics.ENABLED) top.add(btnMetrics); // Reporte de metricas, solo si se prendieron
 
         area = new JTextArea();
         area.setEditable(false);
         JScrollPane scroll = new JScrollPane(area);
 
+        // el grafo va en una lista virtual, las filas se arman al pintarse
+        graphModel = new GraphListModel();
+        graphList = new JList<>(graphModel);
+        graphList.setFont(area.getFont());
+        graphList.setFixedCellHeight(graphList.getFontMetrics(graphList.getFont()).getHeight());
+        status = new JLabel("No graph loaded.");
+        JPanel graphPanel = new JPanel(new BorderLayout());
+        graphPanel.add(status, BorderLayout.NORTH);
+        graphPanel.add(new JScrollPane(graphList), BorderLayout.CENTER);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, graphPanel, scroll);
+        split.setResizeWeight(0.7);
+
+        // avance de lo que corre en segundo plano
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Ready");
+        btnCancel = new JButton("Cancel");
+        btnCancel.setEnabled(false);
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(progressBar, BorderLayout.CENTER);
+        bottom.add(btnCancel, BorderLayout.EAST);
+
         setLayout(new BorderLayout());
         add(top, BorderLayout.NORTH);
-        add(scroll, BorderLayout.CENTER);
+        add(split, BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
 
         // Inicializamos el grafo
         graph = new DirectedGraph();
         modified = false; // Estado inicial del grafo
+        liveEngine = (SccEngine) engineBox.getSelectedItem();
+        setLive(new IncrementalScc(graph, liveEngine.create()));
+        refreshText();
 
-        // CARGAR ARCHIVO INICIAL AUTOMÁTICAMENTE
+        // CARGAR ARCHIVO INICIAL AUTOMÁTICAMENTE (en segundo plano)
         loadInitialFile();
 
         // Acciones de los botones
@@ -78,7 +147,203 @@ public class MainWindow extends JFrame {
         btnAddUser.addActionListener(e -> addUser());
         btnAddRel.addActionListener(e -> addRelation());
         btnDelUser.addActionListener(e -> deleteUser());
+        btnDelRel.addActionListener(e -> deleteRelation());
         btnShow.addActionListener(e -> showGraph());
+        btnShowComp.addActionListener(e -> showComponent());
+        btnReach.addActionListener(e -> reachQuery());
+        btnMetrics.addActionListener(e -> area.append("\n" + Metrics.report()));
+        engineBox.addActionListener(e -> trackGraph()); // pasada completa con el algoritmo nuevo
+        btnCancel.addActionListener(e -> cancelTask());
+    }
+
+    /**
+     * Corre un trabajo largo en segundo plano con la barra de progreso
+     * Mientras corre se desactivan los botones, asi nadie edita el grafo
+     * que el trabajo esta leyendo
+     *
+     * @param label el texto inicial de la barra
+     * @param t el trabajo
+     */
+    private void runTask(String label, GraphTask<?> t) {
+        if (task != null) return;
+        task = t;
+        setBusy(true);
+        progressBar.setValue(0);
+        progressBar.setString(label);
+        t.addPropertyChangeListener(ev -> {
+            if (t != task) return;
+            if ("progress".equals(ev.getPropertyName())) progressBar.setValue((Integer) ev.getNewValue());
+            if ("phase".equals(ev.getPropertyName())) progressBar.setString((String) ev.getNewValue());
+        });
+        t.whenFinished(() -> {
+            task = null;
+            setBusy(false);
+            progressBar.setValue(0);
+            progressBar.setString("Ready");
+        });
+        t.execute();
+    }
+
+    // pide cancelar, el trabajo para en su proximo punto de revision
+    private void cancelTask() {
+        if (task == null) return;
+        task.cancel(false);
+        btnCancel.setEnabled(false);
+        progressBar.setString("Cancelling...");
+    }
+
+    private void setBusy(boolean busy) {
+        for (JComponent c : new JComponent[] { btnLoad, btnSCC, btnSave, btnAddUser, btnAddRel,
+                                               btnDelUser, btnDelRel, btnShow, btnShowComp, btnReach, engineBox }) {
+            c.setEnabled(!busy);
+        }
+        btnCancel.setEnabled(busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    // Cambia los componentes al dia y arma las consultas de alcance sobre el grafo actual
+    private void setLive(IncrementalScc scc) {
+        if (live != null) live.detach();
+        if (queries != null) queries.detach();
+        live = scc;
+        queries = new QueryEngine(graph, scc);
+    }
+
+    /**
+     * Engancha el seguimiento incremental de SCC al grafo actual
+     * La pasada inicial la hace el algoritmo elegido en segundo plano,
+     * despues se mantiene solo. Si se cancela queda el algoritmo anterior
+     */
+    private void trackGraph() {
+        SccEngine engine = (SccEngine) engineBox.getSelectedItem();
+        if (engine == liveEngine || task != null) return;
+        DirectedGraph g = graph;
+        runTask("Finding SCC (" + engine + ")", new GraphTask<IncrementalScc>() {
+            @Override
+            protected IncrementalScc work() {
+                return new IncrementalScc(g, engine.create(), this);
+            }
+
+            @Override
+            protected void succeeded(IncrementalScc result) {
+                setLive(result);
+                liveEngine = engine;
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                engineBox.setSelectedItem(liveEngine);
+                JOptionPane.showMessageDialog(MainWindow.this, "Error finding SCC: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+
+            @Override
+            protected void discarded(IncrementalScc result) {
+                result.detach(); // ya estaba enganchado al grafo
+            }
+
+            @Override
+            protected void cancelled() {
+                engineBox.setSelectedItem(liveEngine);
+                area.append("SCC cancelled, still using " + liveEngine + ".\n");
+            }
+        });
+    }
+
+    /** Lo que deja una carga: el grafo, su bitacora (o null) y sus componentes ya calculados */
+    private static final class Loaded {
+        final DirectedGraph graph;
+        final GraphJournal journal;
+        final IncrementalScc live;
+
+        Loaded(DirectedGraph graph, GraphJournal journal, IncrementalScc live) {
+            this.graph = graph;
+            this.journal = journal;
+            this.live = live;
+        }
+    }
+
+    /**
+     * Carga un archivo en segundo plano y calcula sus componentes
+     * Si el archivo tiene bitacora se repiten los cambios que no llegaron al checkpoint
+     * El grafo actual no se toca hasta que termina bien
+     * El archivo de ejemplo que se carga solo al inicio no lleva bitacora (puede
+     * estar dentro de build o de src); recien al guardarlo en otro lado se crea una
+     *
+     * @param f el archivo
+     * @param message lo que se escribe en el log al terminar
+     * @param initial si es la carga automatica del inicio (los errores van al log)
+     */
+    private void loadInBackground(File f, String message, boolean initial) {
+        SccEngine engine = liveEngine;
+        runTask("Loading " + f.getName(), new GraphTask<Loaded>() {
+            // avisos del cargador, se muestran junto con el mensaje al terminar
+            private final StringBuffer warnings = new StringBuffer();
+
+            @Override
+            public void warn(String text) {
+                warnings.append(text).append('\n');
+            }
+
+            @Override
+            protected Loaded work() throws Exception {
+                if (initial) {
+                    DirectedGraph g = FileSocialMedia.loadFromFile(f, this);
+                    phase("Finding SCC (" + engine + ")");
+                    return new Loaded(g, null, new IncrementalScc(g, engine.create(), this));
+                }
+                GraphJournal j = GraphJournal.open(f, this);
+                try {
+                    phase("Finding SCC (" + engine + ")");
+                    return new Loaded(j.getGraph(), j, new IncrementalScc(j.getGraph(), engine.create(), this));
+                } catch (RuntimeException ex) {
+                    j.close();
+                    throw ex;
+                }
+            }
+
+            @Override
+            protected void succeeded(Loaded result) {
+                closeJournal();
+                journal = result.journal;
+                graph = result.graph;
+                setLive(result.live);
+                if (!initial) area.setText("");
+                area.append(message + "\n");
+                area.append(warnings.toString());
+                // Después de cargar, solo hay cambios sin guardar si quedaron de una caida
+                modified = journal != null && journal.getUnsaved() > 0;
+                if (modified) {
+                    area.append("Recovered " + journal.getUnsaved() + " unsaved changes from "
+                            + GraphJournal.logFileFor(f).getName() + ".\n");
+                }
+                refreshText();
+            }
+
+            @Override
+            protected void failed(Throwable error) {
+                if (initial) {
+                    area.setText("Error loading initial file: " + error.getMessage());
+                } else {
+                    JOptionPane.showMessageDialog(MainWindow.this, "Error loading file: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+
+            @Override
+            protected void discarded(Loaded result) {
+                result.live.detach();
+                if (result.journal == null) return;
+                try {
+                    result.journal.close();
+                } catch (Exception ex) {
+                    area.append("Error closing " + GraphJournal.logFileFor(f).getName() + ": " + ex.getMessage() + "\n");
+                }
+            }
+
+            @Override
+            protected void cancelled() {
+                area.append("Loading " + f.getName() + " cancelled.\n");
+            }
+        });
     }
 
     /**
@@ -92,11 +357,7 @@ public class MainWindow extends JFrame {
         if (resourceUrl != null) {
             
             File defaultFile = new File(resourceUrl.toURI());
-            graph = FileSocialMedia.loadFromFile(defaultFile);
-            area.append("File uploaded automatically: red_social.txt\n\n");
-            area.append("Loaded graph:\n");
-            area.append(graph.toString());
-            modified = false;
+            loadInBackground(defaultFile, "File uploaded automatically: red_social.txt", true);
         } else {
             
             File[] possibleLocations = {
@@ -108,11 +369,7 @@ public class MainWindow extends JFrame {
             boolean loaded = false;
             for (File file : possibleLocations) {
                 if (file.exists()) {
-                    graph = FileSocialMedia.loadFromFile(file);
-                    area.append("File uploaded automatically: " + file.getPath() + "\n\n");
-                    area.append("Loaded graph:\n");
-                    area.append(graph.toString());
-                    modified = false;
+                    loadInBackground(file, "File uploaded automatically: " + file.getPath(), true);
                     loaded = true;
                     break;
                 }
@@ -139,27 +396,19 @@ public class MainWindow extends JFrame {
                 JOptionPane.YES_NO_CANCEL_OPTION);
             
             if (option == JOptionPane.YES_OPTION) {
-                saveFile(); // Guardar antes de cargar
-            } else if (option == JOptionPane.CANCEL_OPTION) {
+                if (!saveFile()) return; // Guardar antes de cargar
+            } else if (option == JOptionPane.NO_OPTION) {
+                dropChanges(); // If not los cambios se tiran, que no vuelvan al abrir
+            } else {
                 return; // Cancelar la operación
             }
-            // If not continuar sin guardar
         }
         
         JFileChooser ch = new JFileChooser();
         int result = ch.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File f = ch.getSelectedFile();
-            try {
-                graph = FileSocialMedia.loadFromFile(f);
-                area.setText("");
-                area.append("File loaded: " + f.getName() + "\n\n");
-                area.append("Graph:\n");
-                area.append(graph.toString());
-                modified = false; // Después de cargar, no hay cambios sin guardar
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error loading file: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            loadInBackground(f, "File loaded: " + f.getName(), false);
         }
     }
 
@@ -170,17 +419,62 @@ public class MainWindow extends JFrame {
             return;
         }
 
-        SCCResult r = Kosaraju.findSCC(graph);
-        area.append("\nStrongly Connected Components:\n");
-        for (int i = 0; i < r.count; i++) {
-            area.append("Component " + (i + 1) + ": ");
-            int k = 0;
-            while (k < r.comps[i].length && r.comps[i][k] != -1) {
-                int idx = r.comps[i][k];
-                area.append(graph.getUserByIndex(idx) + " ");
-                k++;
-            }
-            area.append("\n");
+        DirectedGraph g = graph;
+        IncrementalScc scc = live;
+        SccEngine engine = liveEngine;
+        runTask("Listing SCC", new GraphTask<String>() {
+            @Override
+            protected String work() {
+                // ya esta al dia, no hace falta recalcular
+                SCCResult r = scc.toResult();
+                // se arma todo el texto y se agrega de una, cada append al area es un cambio del documento
+                StringBuilder sb = new StringBuilder();
+                sb.append("\nStrongly Connected Components (").append(engine).append(", live):\n");
+                for (int i = 0; i < r.count; i++) {
+                    if ((i & 1023) == 0) {
+                        worked(r.offsets[i], g.getVertexCount());
+                        checkCancelled();
+                    }
+                    sb.append("Component ").append(i + 1).append(": ");
+                    for (int k = r.offsets[i]; k < r.offsets[i + 1]; k++) {
+                        sb.append(g.getUserByIndex(r.members[k])).append(' ');
+                    }
+                    sb.append('\n');
+                }
+                return sb.toString();
+            }
+
+            @Override
+            protected void succeeded(String text) {
+                area.append(text);
+            }
+        });
+    }
+
+    // arriba de esto Show Graph dibuja los componentes en vez de los users
+    private static final int DETAIL_LIMIT = 2000;
+
+    private static final String[] COLORS = { "red", "blue", "green", "magenta", "orange", "cyan", "yellow" };
+
+    /**
+     * Trabajo que arma un grafo de GraphStream en segundo plano
+     * Solo display() va en el hilo de Swing
+     */
+    private abstract class ViewTask extends GraphTask<Graph> {
+        @Override
+        protected void succeeded(Graph gg) {
+            try {
+                gg.display();
+            } catch (Exception e) {
+                failed(e);
+            }
+        }
+
+        @Override
+        protected void failed(Throwable error) {
+            JOptionPane.showMessageDialog(MainWindow.this, 
+                "Error showing graph: " + error.getMessage(), 
+                "Graph Display Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
@@ -195,58 +489,229 @@ private void showGraph() {
     System.setProperty("org.graphstream.ui", "swing");
     System.setProperty("org.graphstream.ui.renderer", "org.graphstream.ui.j2dviewer.J2DGraphRenderer");
 
-    Graph gg = new SingleGraph("G");
+    DirectedGraph graph = this.graph;
+    IncrementalScc live = this.live;
+    if (graph.getVertexCount() <= DETAIL_LIMIT) {
+        runTask("Building graph view", new ViewTask() {
+            @Override
+            protected Graph work() {
+                SCCResult r = live.toResult();
+                return userView(graph, r, r.members, graph.getVertexCount(), this);
+            }
+        });
+        return;
+    }
 
-    // Create nodos
-    for (int v = 0; v < graph.getVertexCount(); v++) {
-        String userName = graph.getUserByIndex(v);
-        Node node = gg.addNode(userName);
-        node.setAttribute("ui.label", userName);
+    // grafo grande: un nodo por componente, se entra a uno con Show component
+    area.append("\nThe graph has " + graph.getVertexCount() + " users, showing its components instead."
+            + "\nUse 'Show component' to open one of them.\n");
+    runTask("Building component view", new ViewTask() {
+        @Override
+        protected Graph work() {
+            Condensation cond = Condensation.of(graph, live.toResult());
+            checkCancelled();
+            return componentView(cond, this);
+        }
+    });
+}
+
+    // Drill down: dibuja solo el componente de un user (o el #N de la vista de componentes)
+    private void showComponent() {
+        if (graph == null) {
+            JOptionPane.showMessageDialog(this, "Load a file first.", "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this, "User name or component number (#N):");
+        if (input == null || input.trim().isEmpty()) return;
+        input = input.trim();
+
+        SCCResult r = live.toResult();
+        int c;
+        if (input.startsWith("#")) {
+            try {
+                c = Integer.parseInt(input.substring(1).trim()) - 1;
+            } catch (NumberFormatException ex) {
+                c = -1;
+            }
+            if (c < 0 || c >= r.count) {
+                JOptionPane.showMessageDialog(this, "Component not found: " + input, "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+        } else {
+            int v = graph.indexOf(input);
+            if (v == -1) {
+                JOptionPane.showMessageDialog(this, "User not found: " + input, "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            c = r.componentOf[v];
+        }
+
+        int size = r.size(c);
+        if (size > DETAIL_LIMIT) {
+            int option = JOptionPane.showConfirmDialog(this,
+                "Component #" + (c + 1) + " has " + size + " users, drawing it may be slow. Continue?",
+                "Large component", JOptionPane.YES_NO_OPTION);
+            if (option != JOptionPane.YES_OPTION) return;
+        }
+
+        System.setProperty("org.graphstream.ui", "swing");
+        System.setProperty("org.graphstream.ui.renderer", "org.graphstream.ui.j2dviewer.J2DGraphRenderer");
+
+        DirectedGraph graph = this.graph;
+        int[] verts = new int[size];
+        System.arraycopy(r.members, r.offsets[c], verts, 0, size);
+        runTask("Building component view", new ViewTask() {
+            @Override
+            protected Graph work() {
+                return userView(graph, r, verts, verts.length, this);
+            }
+        });
     }
 
-    // Create aristas dirigidas
-    for (int v = 0; v < graph.getVertexCount(); v++) {
-        String fromUser = graph.getUserByIndex(v);
-        int cnt = graph.getNeighborsCount(v);
-        int[] nb = graph.getNeighborsBuffer(v);
-        for (int i = 0; i < cnt; i++) {
-            String toUser = graph.getUserByIndex(nb[i]);
-            String edgeId = fromUser + "->" + toUser;
-            if (gg.getEdge(edgeId) == null) {
-                gg.addEdge(edgeId, fromUser, toUser, true);
+    /**
+     * Arma la vista de users: los users dados y las relaciones entre ellos,
+     * coloreados por componente. Las filas del grafo no tienen repetidos,
+     * asi que cada relacion se agrega directo sin buscarla por id
+     */
+    private static Graph userView(DirectedGraph graph, SCCResult r, int[] verts, int count, GraphTask<?> task) {
+        Graph gg = new SingleGraph("G");
+        Node[] nodeOf = new Node[graph.getVertexCount()];
+        long total = 2L * count;
+
+        // Create nodos
+        for (int k = 0; k < count; k++) {
+            int v = verts[k];
+            String userName = graph.getUserByIndex(v);
+            Node node = gg.addNode(userName);
+            node.setAttribute("ui.label", userName);
+            node.setAttribute("ui.style", "fill-color: " + COLORS[r.componentOf[v] % COLORS.length] + ";");
+            nodeOf[v] = node;
+            if ((k & 1023) == 0) {
+                task.worked(k, total);
+                task.checkCancelled();
+            }
+        }
+
+        // Create aristas dirigidas
+        int edgeId = 0;
+        NeighborCursor nb = graph.cursor();
+        for (int k = 0; k < count; k++) {
+            int v = verts[k];
+            nb.moveTo(v);
+            while (nb.hasNext()) {
+                Node to = nodeOf[nb.nextInt()];
+                if (to != null) gg.addEdge("e" + edgeId++, nodeOf[v], to, true);
+            }
+            if ((k & 1023) == 0) {
+                task.worked(count + k, total);
+                task.checkCancelled();
             }
         }
+
+        // Para ver etiquetas
+        gg.setAttribute("ui.stylesheet", "node { text-size: 14; text-alignment: above; }");
+        return gg;
     }
 
-    // Colors for components usando kosaraju
-    SCCResult r = Kosaraju.findSCC(graph);
-    String[] colors = { "red", "blue", "green", "magenta", "orange", "cyan", "yellow" };
-
-    for (int c = 0; c < r.count; c++) {
-        int k = 0;
-        String color = colors[c % colors.length];
-        while (k < r.comps[c].length && r.comps[c][k] != -1) {
-            int idx = r.comps[c][k];
-            String userName = graph.getUserByIndex(idx);
-            Node node = gg.getNode(userName);
-            if (node != null) {
-                node.setAttribute("ui.style", "fill-color: " + color + ";");
-            }
-            k++;
+    /**
+     * Arma la vista de componentes: un nodo por componente con su tamaño
+     * y una flecha por cada par de componentes conectados, mas gruesa
+     * mientras mas relaciones junte
+     */
+    private static Graph componentView(Condensation cond, GraphTask<?> task) {
+        Graph gg = new SingleGraph("Components");
+        int count = cond.getComponentCount();
+        Node[] nodes = new Node[count];
+        long total = 2L * count;
+
+        for (int c = 0; c < count; c++) {
+            int size = cond.size(c);
+            Node node = gg.addNode("c" + c);
+            node.setAttribute("ui.label", "#" + (c + 1) + " (" + size + ")");
+            int px = 10 + 4 * (31 - Integer.numberOfLeadingZeros(size)); // crece con log2 del tamaño
+            node.setAttribute("ui.style", "size: " + px + "px; fill-color: " + COLORS[c % COLORS.length] + ";");
+            nodes[c] = node;
+            if ((c & 1023) == 0) {
+                task.worked(c, total);
+                task.checkCancelled();
+            }
+        }
+
+        int[] off = cond.getOffsets();
+        int[] targets = cond.getTargets();
+        int[] weights = cond.getWeights();
+        for (int c = 0; c < count; c++) {
+            for (int i = off[c]; i < off[c + 1]; i++) {
+                Edge e = gg.addEdge("e" + i, nodes[c], nodes[targets[i]], true);
+                int w = weights[i];
+                if (w > 1) {
+                    e.setAttribute("ui.label", w);
+                    e.setAttribute("ui.style", "size: " + (1 + (31 - Integer.numberOfLeadingZeros(w))) + "px;");
+                }
+            }
+            if ((c & 1023) == 0) {
+                task.worked(count + c, total);
+                task.checkCancelled();
+            }
         }
+
+        gg.setAttribute("ui.stylesheet", "node { text-size: 12; text-alignment: above; } edge { text-size: 10; }");
+        return gg;
     }
 
-    // Para ver etiquetas
-    gg.setAttribute("ui.stylesheet", "node { text-size: 14; text-alignment: above; }");
+    // Alcance entre dos users: si hay camino, la distancia, y cuantos alcanza el primero a pocos pasos
+    private void reachQuery() {
+        String from = JOptionPane.showInputDialog(this, "From user:");
+        if (from == null || from.trim().isEmpty()) return;
 
-    try {
-        gg.display();
-    } catch (Exception e) {
-        JOptionPane.showMessageDialog(this, 
-            "Error showing graph: " + e.getMessage(), 
-            "Graph Display Error", JOptionPane.ERROR_MESSAGE);
+        String to = JOptionPane.showInputDialog(this, "To user:");
+        if (to == null || to.trim().isEmpty()) return;
+
+        int a = graph.indexOf(from.trim());
+        int b = graph.indexOf(to.trim());
+        if (a == -1 || b == -1) {
+            JOptionPane.showMessageDialog(this, "User not found: " + (a == -1 ? from.trim() : to.trim()), "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // el conteo total es un BFS por todo el grafo, asi que corre en segundo plano
+        // (mientras tanto los botones de edicion quedan apagados y el grafo no cambia)
+        String fromName = from.trim(), toName = to.trim();
+        QueryEngine q = queries;
+        boolean same = live.sameComponent(a, b);
+        runTask("Reach query", new GraphTask<String>() {
+            @Override
+            protected String work() {
+                long t0 = System.nanoTime();
+                int d = q.distance(a, b);
+                StringBuilder sb = new StringBuilder();
+                sb.append(fromName).append(" -> ").append(toName).append(": ");
+                if (d < 0) sb.append("not reachable");
+                else sb.append(d).append(d == 1 ? " hop" : " hops");
+                if (same) sb.append(" (same component)");
+                sb.append('\n');
+                sb.append(fromName).append(" reaches ");
+                for (int k = 1; k <= 3; k++) {
+                    checkCancelled();
+                    sb.append(q.countWithinHops(a, k)).append(" users within ").append(k).append(k < 3 ? ", " : "");
+                }
+                checkCancelled();
+                sb.append(" hops, ").append(q.countReachable(a)).append(" in total");
+                sb.append(String.format(" (%.1f ms)%n", (System.nanoTime() - t0) / 1e6));
+                return sb.toString();
+            }
+
+            @Override
+            protected void succeeded(String result) {
+                area.append(result);
+            }
+
+            @Override
+            protected void cancelled() {
+                area.append("Reach query cancelled.\n");
+            }
+        });
     }
-}
 
     // Agg new user
     private void addUser() {
@@ -271,7 +736,7 @@ private void showGraph() {
         refreshText();
     }
 
-    // Delete el user (y sus relaciones) creando un grafo nuevo
+    // Delete el user (y sus relaciones) directo en el grafo
     private void deleteUser() {
         if (graph == null) {
             JOptionPane.showMessageDialog(this, "No graph loaded.", "Warning", JOptionPane.WARNING_MESSAGE);
@@ -283,68 +748,118 @@ private void showGraph() {
 
         name = name.trim(); // Delete espacios al inicio y fin
 
-        // Crear un nuevo grafo sin el usuario
-        DirectedGraph newGraph = new DirectedGraph();
-        int n = graph.getVertexCount();
-
-        // Copiar usuarios excepto el que se elimina
-        for (int i = 0; i < n; i++) {
-            String u = graph.getUserByIndex(i);
-            if (!u.equals(name)) {
-                newGraph.addUser(u);
-            }
-        }
-
-        // Copiar relaciones que no involucren al usuario eliminado
-        for (int i = 0; i < n; i++) {
-            String from = graph.getUserByIndex(i);
-            int cnt = graph.getNeighborsCount(i);
-            int[] nb = graph.getNeighborsBuffer(i);
-            for (int j = 0; j < cnt; j++) {
-                String to = graph.getUserByIndex(nb[j]);
-                if (!from.equals(name) && !to.equals(name)) {
-                    newGraph.addRelation(from, to);
-                }
-            }
+        if (!graph.removeUser(name)) {
+            JOptionPane.showMessageDialog(this, "User not found: " + name, "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
         }
 
-        graph = newGraph; // update el grafo
         modified = true;  // Alert cambio
         refreshText();    // update el area de texto
     }
 
-    // uopdate el text area para mostrar el grafo
+    // Delete una relacion entre dos users
+    private void deleteRelation() {
+        String from = JOptionPane.showInputDialog(this, "Enter source user:");
+        if (from == null || from.trim().isEmpty()) return;
+
+        String to = JOptionPane.showInputDialog(this, "Enter target user:");
+        if (to == null || to.trim().isEmpty()) return;
+
+        if (!graph.removeRelation(from.trim(), to.trim())) {
+            JOptionPane.showMessageDialog(this, "Relation not found.", "Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        modified = true;
+        refreshText();
+    }
+
+    // uopdate la lista del grafo, solo se vuelven a armar las filas visibles
     private void refreshText() {
         if (graph != null) {
-            area.setText("Graph:\n" + graph.toString());
+            graphModel.setGraph(graph);
+            graphList.setPrototypeCellValue(graphModel.prototypeRow());
+            String text = "Graph: " + graph.getVertexCount() + " users";
+            // show de cambios no guardados
+            if (modified) text += "   * There are unsaved changes.";
+            status.setText(text);
         } else {
-            area.setText("No graph loaded.");
+            graphModel.setGraph(null);
+            status.setText("No graph loaded.");
+        }
+    }
+
+    // Tira de la bitacora los cambios sin guardar y la cierra
+    // El grafo sigue en pantalla; si despues se guarda, se escribe completo
+    private void dropChanges() {
+        if (journal == null) return;
+        try {
+            journal.discard();
+        } catch (Exception ex) {
+            area.append("Error discarding changes in " + GraphJournal.logFileFor(journal.getBaseFile()).getName() + ": " + ex.getMessage() + "\n");
         }
+        closeJournal();
+    }
 
-        // show de cambios no guardados
+    // Al cerrar la ventana: si hay cambios pregunta si guardar, como al cargar otro archivo
+    private void exit() {
         if (modified) {
-            area.append("\n* There are unsaved changes.");
+            int option = JOptionPane.showConfirmDialog(this,
+                "There are unsaved changes. Do you want to save before exiting?",
+                "Unsaved changes",
+                JOptionPane.YES_NO_CANCEL_OPTION);
+            if (option == JOptionPane.YES_OPTION) {
+                if (!saveFile()) return;
+            } else if (option == JOptionPane.NO_OPTION) {
+                dropChanges();
+            } else {
+                return;
+            }
         }
+        closeJournal();
+        dispose();
+        System.exit(0);
     }
 
-    // Método save el archivo
-    private void saveFile() {
+    // Cierra la bitacora del archivo anterior; lo no guardado queda en ella como recuperable
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (Exception ex) {
+            area.append("Error closing " + GraphJournal.logFileFor(journal.getBaseFile()).getName() + ": " + ex.getMessage() + "\n");
+        }
+        journal = null;
+    }
+
+    // Método save el archivo, devuelve si se guardo
+    // Al mismo archivo solo se marca la bitacora como guardada, a otro se escribe completo
+    private boolean saveFile() {
         if (graph == null) {
             JOptionPane.showMessageDialog(this, "Nothing to save (no graph loaded).", "Info", JOptionPane.INFORMATION_MESSAGE);
-            return;
+            return false;
         }
 
         JFileChooser ch = new JFileChooser();
+        if (journal != null) ch.setSelectedFile(journal.getBaseFile());
         int result = ch.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File f = ch.getSelectedFile();
             try {
-                FileSocialMedia.saveToFile(graph, f); 
+                if (journal != null && f.getAbsoluteFile().equals(journal.getBaseFile().getAbsoluteFile())) {
+                    journal.sync();
+                } else {
+                    GraphJournal created = GraphJournal.create(graph, f);
+                    dropChanges(); // los cambios quedaron en f, no en el archivo anterior
+                    journal = created;
+                }
                 modified = false; 
+                refreshText();
                 JOptionPane.showMessageDialog(this, "File saved successfully.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return true;
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error saving file: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
+        return false;
     }
 }
\ No newline at end of file